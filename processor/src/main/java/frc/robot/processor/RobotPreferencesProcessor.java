@@ -0,0 +1,139 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018-2019 FIRST. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+
+/**
+ * An annotation processor that writes the registry of all fields annotated with
+ * {@code @RobotPreferencesValue}, so that the robot does not have to scan the
+ * classpath for them at startup.
+ */
+@SupportedAnnotationTypes(RobotPreferencesProcessor.ANNOTATION_NAME)
+@SupportedSourceVersion(SourceVersion.RELEASE_11)
+public class RobotPreferencesProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION_NAME = "frc.robot.utilities.RobotPreferencesValue";
+
+    private static final String PACKAGE_NAME = "frc.robot.utilities";
+    private static final String REGISTRY_NAME = "RobotPreferencesRegistry";
+    private static final String VALUE_NAME = "frc.robot.utilities.RobotPreferences.Value";
+
+    private final Set<String> fields = new TreeSet<String>();
+    private final List<Element> originatingElements = new ArrayList<Element>();
+    private boolean registryWritten = false;
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (isValidField(element)) {
+                    TypeElement owner = (TypeElement) element.getEnclosingElement();
+
+                    fields.add(owner.getQualifiedName() + "." + element.getSimpleName());
+                    originatingElements.add(element);
+                }
+            }
+        }
+
+        // All of the robot sources are present in the first round, so write the
+        // registry as soon as there is something to put in it.
+        if (!registryWritten && !fields.isEmpty() && !roundEnv.processingOver()) {
+            writeRegistry();
+            registryWritten = true;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns true if the annotated element is a field the registry can refer to,
+     * reporting an error otherwise.
+     *
+     * @param element The annotated element.
+     *
+     * @return Whether the field can be added to the registry.
+     */
+    private boolean isValidField(Element element) {
+        if (element.getKind() != ElementKind.FIELD) {
+            error(element, "@RobotPreferencesValue may only be applied to fields");
+            return false;
+        }
+
+        if (!element.getModifiers().contains(Modifier.STATIC)
+                || !element.getModifiers().contains(Modifier.PUBLIC)) {
+            error(element, "@RobotPreferencesValue fields must be public and static");
+            return false;
+        }
+
+        for (Element owner = element.getEnclosingElement(); owner.getKind() != ElementKind.PACKAGE;
+                owner = owner.getEnclosingElement()) {
+            if (!owner.getModifiers().contains(Modifier.PUBLIC)) {
+                error(element, "@RobotPreferencesValue fields must be declared in public classes");
+                return false;
+            }
+        }
+
+        TypeElement valueType = processingEnv.getElementUtils().getTypeElement(VALUE_NAME);
+
+        if (valueType != null
+                && !processingEnv.getTypeUtils().isAssignable(element.asType(), valueType.asType())) {
+            error(element, "@RobotPreferencesValue fields must be a RobotPreferences.Value");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes the registry source file.
+     */
+    private void writeRegistry() {
+        try (PrintWriter writer = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(PACKAGE_NAME + "." + REGISTRY_NAME, originatingElements.toArray(new Element[0]))
+                .openWriter())) {
+            writer.println("package " + PACKAGE_NAME + ";");
+            writer.println();
+            writer.println("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")");
+            writer.println("public final class " + REGISTRY_NAME + " implements RobotPreferences.IValueRegistry {");
+            writer.println();
+            writer.println("    @Override");
+            writer.println("    public RobotPreferences.Value[] getValues() {");
+            writer.println("        return new RobotPreferences.Value[] {");
+            for (String field : fields) {
+                writer.println("            " + field + ",");
+            }
+            writer.println("        };");
+            writer.println("    }");
+            writer.println("}");
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + REGISTRY_NAME + ": " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,83 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.commands;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.sensors.SimulatedNavX;
+
+/**
+ * Benchmarks the per-loop methods of the DriveStraight command against a stub
+ * drive subsystem that does not touch the (simulated) hardware. The stub is
+ * shared with the allocation test, in the test sources.
+ *
+ * <p>
+ * The jmh task runs with the GC profiler, so gc.alloc.rate.norm in the results
+ * gives the bytes allocated per loop; it should be zero for all of these.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriveStraightBenchmark {
+
+    private static final int LOOP_ITERATIONS = 10_000;
+
+    private DriveStraight command;
+
+    @Setup
+    public void setup() {
+        HAL.initialize(500, 0);
+
+        // Drive far enough that the command never finishes during the benchmark.
+        command = new DriveStraight(new StubDriveSubsystem(new SimulatedNavX(200))).withSpeed(0.5).forMeters(1.0e9);
+        command.initialize();
+    }
+
+    @Benchmark
+    public void execute() {
+        command.execute();
+    }
+
+    @Benchmark
+    public boolean isFinished() {
+        return command.isFinished();
+    }
+
+    /**
+     * Runs 10,000 iterations of the command loop per invocation, as a stand-in for
+     * a long stretch of a match.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LOOP_ITERATIONS)
+    public boolean loop() {
+        boolean finished = false;
+
+        for (int i = 0; i < LOOP_ITERATIONS; i++) {
+            command.execute();
+            finished |= command.isFinished();
+        }
+
+        return finished;
+    }
+}
@@ -0,0 +1,53 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.subsystems;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.sensors.SimulatedNavX;
+
+/**
+ * Benchmarks the odometry update done by DriveSubsystem.periodic() against the
+ * simulated encoders and a simulated navX, which delivers its samples at 200 Hz
+ * like the real one. The odometry thread is disabled, so that periodic() does
+ * the update itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriveSubsystemBenchmark {
+
+    private DriveSubsystem drive;
+
+    @Setup
+    public void setup() {
+        HAL.initialize(500, 0);
+
+        drive = new DriveSubsystem(0, new SimulatedNavX(200));
+    }
+
+    @Benchmark
+    public void periodic() {
+        drive.periodic();
+    }
+}
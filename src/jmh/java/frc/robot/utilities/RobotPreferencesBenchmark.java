@@ -0,0 +1,75 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.utilities.RobotPreferences.BooleanValue;
+import frc.robot.utilities.RobotPreferences.DoubleValue;
+import frc.robot.utilities.RobotPreferences.IntegerValue;
+import frc.robot.utilities.RobotPreferences.StringValue;
+
+/**
+ * Benchmarks reading each type of preferences value, as done on the control
+ * loop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotPreferencesBenchmark {
+
+    private StringValue stringValue;
+    private IntegerValue integerValue;
+    private DoubleValue doubleValue;
+    private BooleanValue booleanValue;
+
+    @Setup
+    public void setup() {
+        HAL.initialize(500, 0);
+
+        stringValue = new StringValue("Benchmark/String", "default");
+        integerValue = new IntegerValue("Benchmark/Integer", 42);
+        doubleValue = new DoubleValue("Benchmark/Double", 0.5);
+        booleanValue = new BooleanValue("Benchmark/Boolean", true);
+    }
+
+    @Benchmark
+    public String getStringValue() {
+        return stringValue.getValue();
+    }
+
+    @Benchmark
+    public int getIntegerValue() {
+        return integerValue.getValue();
+    }
+
+    @Benchmark
+    public double getDoubleValue() {
+        return doubleValue.getValue();
+    }
+
+    @Benchmark
+    public boolean getBooleanValue() {
+        return booleanValue.getValue();
+    }
+}
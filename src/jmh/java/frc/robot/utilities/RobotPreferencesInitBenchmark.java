@@ -0,0 +1,65 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.utilities.RobotPreferences.DoubleValue;
+import frc.robot.utilities.RobotPreferences.Value;
+
+/**
+ * Benchmarks RobotPreferences.init() with different numbers of registered keys.
+ * After the first call the preferences match the registered values, so this
+ * measures the cost of a normal robot start. The preferences snapshot is kept
+ * in a temporary file, so the one in the deploy directory is left alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotPreferencesInitBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int keys;
+
+    private Value[] values;
+
+    @Setup
+    public void setup() {
+        HAL.initialize(500, 0);
+
+        values = new Value[keys + 1];
+        values[0] = RobotPreferences.WRITE_DEFAULT;
+        for (int i = 1; i <= keys; i++) {
+            values[i] = new DoubleValue("Benchmark/Key" + i, i);
+        }
+
+        RobotPreferences.init(Arrays.stream(values));
+    }
+
+    @Benchmark
+    public int init() {
+        return RobotPreferences.init(Arrays.stream(values));
+    }
+}
@@ -0,0 +1,54 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Measures the startup cost of finding the preferences values, from the
+ * registry generated at build time ("registry") and by scanning the classpath
+ * as before ("scan"). Each fork finds the values once in a fresh JVM, so the
+ * time includes the class loading that a robot start pays. Select it with
+ * "gradlew jmh -PjmhInclude=RobotPreferencesLookupBenchmark".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class RobotPreferencesLookupBenchmark {
+
+    @Param({ "registry", "scan" })
+    public String source;
+
+    @Setup
+    public void setup() {
+        HAL.initialize(500, 0);
+    }
+
+    @Benchmark
+    public long getValues() {
+        return "scan".equals(source) ? RobotPreferencesScanner.getValues().count()
+                : RobotPreferences.getRegistryValues().length;
+    }
+}
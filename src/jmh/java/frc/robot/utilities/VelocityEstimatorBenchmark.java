@@ -0,0 +1,90 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import frc.robot.Constants;
+
+/**
+ * Benchmarks adding a sample to a wheel velocity estimator, for each filter and
+ * a range of window sizes.
+ *
+ * <p>
+ * The samples come from a synthetic encoder trace at 200 Hz: a speed varying
+ * between 1 and 3 m/s, quantized to whole encoder pulses, with jitter in the
+ * sample times. gc.alloc.rate.norm should be zero.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VelocityEstimatorBenchmark {
+
+    private static final int TRACE_LENGTH = 4096;
+
+    @Param({ "LEAST_SQUARES", "MEDIAN" })
+    public VelocityEstimator.Filter filter;
+
+    @Param({ "4", "8", "16" })
+    public int window;
+
+    private final double[] times = new double[TRACE_LENGTH];
+    private final double[] distances = new double[TRACE_LENGTH];
+    private VelocityEstimator estimator;
+    private double timeOffset;
+    private double distanceOffset;
+    private int index;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(1);
+        double time = 0.0;
+
+        for (int i = 0; i < TRACE_LENGTH; i++) {
+            time += 0.005 + random.nextGaussian() * 0.0003;
+
+            final double distance = 2.0 * time - 2.0 * Math.cos(0.5 * time) + 2.0;
+
+            times[i] = time;
+            distances[i] = Math.floor(distance / Constants.kEncoderDistancePerPulse)
+                    * Constants.kEncoderDistancePerPulse;
+        }
+
+        estimator = new VelocityEstimator(filter, window);
+    }
+
+    @Benchmark
+    public double add() {
+        estimator.add(timeOffset + times[index], distanceOffset + distances[index]);
+
+        // Replay the trace from where it ended, so the time keeps increasing.
+        if (++index == TRACE_LENGTH) {
+            index = 0;
+            timeOffset += times[TRACE_LENGTH - 1];
+            distanceOffset += distances[TRACE_LENGTH - 1];
+        }
+
+        return estimator.getVelocity();
+    }
+}
@@ -0,0 +1,173 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.vision;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * Measures the latency from sending a frame's targets to the robot side seeing
+ * them, over loopback, for the UDP channel and for a NetworkTables entry.
+ *
+ * <p>
+ * Each operation sends one frame and spins until it arrives: until
+ * {@link VisionTargetReceiver#update()} takes it, or until the server's copy of
+ * the entry holds its sequence number. The NetworkTables path runs a server
+ * and a client in separate instances, with the client flushing after each
+ * frame as a coprocessor would. Frames are sent 33 ms apart, as at 30 frames
+ * per second, and the time between frames is not measured.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisionTargetLatencyBenchmark {
+
+    private static final long FRAME_PERIOD_MS = 33;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int NETWORK_TABLES_PORT = 1736;
+    private static final double[] EMPTY = new double[0];
+
+    /**
+     * The UDP sender and receiver.
+     */
+    @State(Scope.Benchmark)
+    public static class UdpChannel {
+        private final VisionTargets targets = new VisionTargets();
+        private VisionTargetReceiver receiver;
+        private VisionTargetSender sender;
+        private int sequence;
+
+        @Setup
+        public void setup() throws IOException {
+            receiver = new VisionTargetReceiver(0, () -> System.nanoTime() / 1.0e9);
+            receiver.start();
+            sender = new VisionTargetSender("localhost", receiver.getPort());
+        }
+
+        @Setup(Level.Invocation)
+        public void waitForFrame() throws InterruptedException {
+            Thread.sleep(FRAME_PERIOD_MS);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            sender.close();
+            receiver.close();
+        }
+    }
+
+    /**
+     * The NetworkTables client (the coprocessor) and server (the robot).
+     */
+    @State(Scope.Benchmark)
+    public static class NetworkTablesEntry {
+        private final double[] targets = new double[5];
+        private NetworkTableInstance server;
+        private NetworkTableInstance client;
+        private NetworkTableEntry clientEntry;
+        private NetworkTableEntry serverEntry;
+        private int sequence;
+
+        @Setup
+        public void setup() throws InterruptedException {
+            final File persist = new File(System.getProperty("java.io.tmpdir"), "latency-benchmark.ini");
+
+            server = NetworkTableInstance.create();
+            server.startServer(persist.getPath(), "127.0.0.1", NETWORK_TABLES_PORT);
+            client = NetworkTableInstance.create();
+            client.startClient("127.0.0.1", NETWORK_TABLES_PORT);
+
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+            while (!client.isConnected()) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("NETWORKTABLES CLIENT DID NOT CONNECT");
+                }
+                Thread.sleep(10);
+            }
+
+            clientEntry = client.getEntry("/Vision/Targets");
+            serverEntry = server.getEntry("/Vision/Targets");
+        }
+
+        @Setup(Level.Invocation)
+        public void waitForFrame() throws InterruptedException {
+            Thread.sleep(FRAME_PERIOD_MS);
+        }
+
+        @TearDown
+        public void tearDown() {
+            client.close();
+            server.close();
+        }
+    }
+
+    @Benchmark
+    public int udp(UdpChannel channel) throws IOException {
+        final int sequence = ++channel.sequence;
+
+        channel.targets.setFrame(sequence, TimeUnit.NANOSECONDS.toMicros(System.nanoTime()));
+        channel.targets.addTarget(10.0, 5.0, 3.0, 0.02);
+        channel.sender.send(channel.targets);
+
+        final long deadline = System.nanoTime() + TIMEOUT_NANOS;
+
+        while (!channel.receiver.update() || channel.receiver.getTargets().getSequence() != sequence) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("FRAME " + sequence + " NOT RECEIVED");
+            }
+        }
+
+        return channel.receiver.getTargets().getCount();
+    }
+
+    @Benchmark
+    public int networkTables(NetworkTablesEntry entry) {
+        final int sequence = ++entry.sequence;
+
+        // The sequence number followed by one target's yaw, pitch, distance and area.
+        entry.targets[0] = sequence;
+        entry.targets[1] = 10.0;
+        entry.targets[2] = 5.0;
+        entry.targets[3] = 3.0;
+        entry.targets[4] = 0.02;
+        entry.clientEntry.setDoubleArray(entry.targets);
+        entry.client.flush();
+
+        final long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        double[] received = EMPTY;
+
+        while (received.length == 0 || received[0] != sequence) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("FRAME " + sequence + " NOT RECEIVED");
+            }
+            received = entry.serverEntry.getDoubleArray(EMPTY);
+        }
+
+        return received.length;
+    }
+}
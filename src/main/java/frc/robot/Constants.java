@@ -31,4 +31,19 @@ public final class Constants {
     public static final double kEncoderDistancePerPulse = 
         // Assumes the encoders are directly mounted on the wheel shafts
         (kWheelDiameterMeters * Math.PI) / (double) kEncoderCPR;
+
+    // Drive characterization values. These are the values from the WPILib
+    // trajectory tutorial and must be replaced by characterizing this robot.
+    public static final double ksVolts = 0.22;
+    public static final double kvVoltSecondsPerMeter = 1.98;
+    public static final double kaVoltSecondsSquaredPerMeter = 0.2;
+    public static final double kPDriveVel = 8.5;
+
+    public static final double kMaxTrajectoryVoltage = 10.0;
+    public static final double kMaxSpeedMetersPerSecond = 3.0;
+    public static final double kMaxAccelerationMetersPerSecondSquared = 3.0;
+
+    // Reasonable baseline values for a RAMSETE follower in units of meters and seconds.
+    public static final double kRamseteB = 2.0;
+    public static final double kRamseteZeta = 0.7;
 }
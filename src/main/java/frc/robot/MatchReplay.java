@@ -0,0 +1,152 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.telemetry.TelemetryLog;
+import frc.robot.telemetry.TelemetryReader;
+import frc.robot.telemetry.TelemetryRecord;
+
+/**
+ * Replays a recorded telemetry log through the robot code on the desktop, and
+ * checks that it drives the motors exactly as it did on the robot. Run it with
+ * "gradlew replay -PtelemetryLog=path/to/log.bin".
+ *
+ * <p>
+ * Each recorded loop sets the driver station mode, the joystick and Xbox
+ * controller axes, the encoders and the gyro in the simulation HAL, steps the
+ * simulated clock to the recorded time and runs one pass of the robot loop.
+ * The clock only moves when the replay steps it, so the replay runs as fast as
+ * the code allows rather than every 20 ms.
+ *
+ * <p>
+ * The autonomous routine is the one named in the event logged when autonomous
+ * started, rather than the one selected on the desktop dashboard. Logs without
+ * that event, or that name a routine that no longer exists, run the default
+ * routine.
+ *
+ * <p>
+ * The odometry is updated in the robot loop rather than on its own thread, so
+ * that it sees exactly the recorded sensor values. If the recorded match ran
+ * the odometry thread, a command could have read a heading newer than the one
+ * that was recorded, and that loop will show up as a mismatch. The preferences
+ * are those of the desktop simulation, so they must match the robot's for the
+ * outputs to match.
+ *
+ * <p>
+ * For the same reason, the wheel velocity estimators are fed once per loop
+ * (50 Hz) instead of at the odometry rate (200 Hz by default), since the log
+ * only has the distances read by the loop. Their window is scaled to cover the
+ * same time, but the estimates are made from fewer samples. Commands that use
+ * the estimated wheel speeds, such as the trajectory follower, may therefore
+ * show mismatches that are not regressions.
+ */
+public final class MatchReplay {
+
+    private static final int MAX_REPORTED_MISMATCHES = 10;
+
+    private MatchReplay() {
+    }
+
+    /**
+     * Replays a log file.
+     *
+     * @param args The log file.
+     *
+     * @throws IOException If the log cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: MatchReplay <log file>");
+            System.exit(1);
+        }
+
+        final TelemetryReader reader = new TelemetryReader(Paths.get(args[0]));
+        final TelemetryRecord recorded = reader.getRecord();
+        final TelemetryRecord replayed = TelemetryLog.getRecord();
+
+        if (!reader.next()) {
+            System.out.println("NO LOOPS TO REPLAY");
+            System.exit(1);
+        }
+
+        final SimulationHarness harness = new SimulationHarness();
+
+        // Start the odometry from the first recorded heading.
+        harness.setGyro(recorded.getHeading(), 0.0);
+        harness.robotInit();
+
+        final double startTime = reader.getTimestamp();
+        final long startNanos = System.nanoTime();
+        int loops = 0;
+        int mismatches = 0;
+
+        do {
+            harness.setMode(recorded.getMode());
+            harness.setControllers(recorded.getLeftStickY(), recorded.getRightStickY(), recorded.getXboxLeftY(),
+                    recorded.getXboxRightX());
+            // The recorded distances are whole numbers of pulses.
+            harness.setEncoders(recorded.getLeftDistance(), recorded.getRightDistance(), recorded.getLeftRate(),
+                    recorded.getRightRate());
+            harness.setGyro(recorded.getHeading(), recorded.getTurnRate());
+
+            final double delay = reader.getTimestamp() - Timer.getFPGATimestamp();
+
+            if (delay > 0.0) {
+                SimHooks.stepTiming(delay);
+            }
+
+            selectAutonomousRoutine(reader, harness.getRobotContainer());
+            harness.step();
+
+            // The outputs are read before the commands run, so the first loop shows
+            // the outputs from before the log started.
+            if (loops > 0 && (replayed.getLeftOutput() != recorded.getLeftOutput()
+                    || replayed.getRightOutput() != recorded.getRightOutput())) {
+                if (mismatches < MAX_REPORTED_MISMATCHES) {
+                    System.out.printf("LOOP %d: RECORDED (%f, %f), REPLAYED (%f, %f)%n", reader.getLoop(),
+                            recorded.getLeftOutput(), recorded.getRightOutput(), replayed.getLeftOutput(),
+                            replayed.getRightOutput());
+                }
+                mismatches++;
+            }
+
+            loops++;
+        } while (reader.next());
+
+        final double elapsed = (System.nanoTime() - startNanos) / 1.0e9;
+        final double duration = reader.getTimestamp() - startTime;
+
+        System.out.printf("REPLAYED %d LOOPS (%.1f s OF MATCH TIME) IN %.2f s (%.0fx REAL TIME), %d MISMATCHES%n",
+                loops, duration, elapsed, duration / elapsed, mismatches);
+
+        System.exit(mismatches == 0 ? 0 : 1);
+    }
+
+    /**
+     * Selects the autonomous routine named by an event in the current loop, if
+     * there is one.
+     */
+    private static void selectAutonomousRoutine(TelemetryReader reader, RobotContainer container) {
+        for (int i = 0; i < reader.getEventCount(); i++) {
+            final String event = reader.getEvent(i);
+
+            if (event.startsWith(Robot.AUTONOMOUS_ROUTINE_EVENT)) {
+                final String name = event.substring(Robot.AUTONOMOUS_ROUTINE_EVENT.length());
+
+                if (!container.selectAutonomousRoutine(name)) {
+                    System.out.println("UNKNOWN AUTONOMOUS ROUTINE: " + name);
+                }
+            }
+        }
+    }
+}
@@ -7,9 +7,19 @@
 
 package frc.robot;
 
+import java.util.function.Supplier;
+
 import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.telemetry.TelemetryLog;
+import frc.robot.telemetry.TelemetryRecord;
+import frc.robot.utilities.AllocationTracker;
+import frc.robot.utilities.DashboardPublisher;
+import frc.robot.utilities.LoopTiming;
+import frc.robot.utilities.LoopWatchdog;
+import frc.robot.utilities.ThreadPolicy;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -19,20 +29,71 @@ import edu.wpi.first.wpilibj2.command.CommandScheduler;
  * project.
  */
 public class Robot extends TimedRobot {
+    // The telemetry event that names the autonomous routine, at the start of
+    // autonomous.
+    static final String AUTONOMOUS_ROUTINE_EVENT = "AUTONOMOUS ROUTINE: ";
+
     private Command m_autonomousCommand;
 
     private RobotContainer m_robotContainer;
 
+    private final Supplier<RobotContainer> m_robotContainerFactory;
+    private final boolean m_logTelemetry;
+    private final boolean m_applyThreadPolicy;
+
+    // The time taken by DashboardPublisher.update(), and the time robotPeriodic()
+    // ended, in the current loop.
+    private long m_dashboardNanos;
+    private long m_robotPeriodicEndTime;
+
+    /**
+     * Constructs the robot.
+     */
+    public Robot() {
+        this(RobotContainer::new, true, true);
+    }
+
+    /**
+     * Constructs the robot with a specified container, e.g. to replay a recorded
+     * match.
+     *
+     * @param robotContainerFactory Creates the robot container.
+     * @param logTelemetry          If true, the telemetry is logged to disk.
+     * @param applyThreadPolicy     If true, the loop jitter is measured and the
+     *                              thread policy applied, as set in the
+     *                              preferences.
+     */
+    Robot(Supplier<RobotContainer> robotContainerFactory, boolean logTelemetry, boolean applyThreadPolicy) {
+        m_robotContainerFactory = robotContainerFactory;
+        m_logTelemetry = logTelemetry;
+        m_applyThreadPolicy = applyThreadPolicy;
+    }
+
     /**
      * This function is run when the robot is first started up and should be used
      * for any initialization code.
      */
     @Override
     public void robotInit() {
+        if (m_logTelemetry) {
+            TelemetryLog.start();
+            LoopWatchdog.start();
+        }
+        if (m_applyThreadPolicy) {
+            ThreadPolicy.start();
+        }
+
         // Instantiate our RobotContainer. This will perform all our button bindings,
         // and put our
         // autonomous chooser on the dashboard.
-        m_robotContainer = new RobotContainer();
+        m_robotContainer = m_robotContainerFactory.get();
+    }
+
+    /**
+     * Returns the robot container, once {@link #robotInit} has created it.
+     */
+    RobotContainer getRobotContainer() {
+        return m_robotContainer;
     }
 
     /**
@@ -53,7 +114,52 @@ public class Robot extends TimedRobot {
         // and running subsystem periodic() methods. This must be called from the
         // robot's periodic
         // block in order for anything in the Command-based framework to work.
+        ThreadPolicy.recordLoop();
+        LoopWatchdog.loopStarted();
+
+        final TelemetryRecord record = TelemetryLog.getRecord();
+
+        record.setMode(isDisabled() ? TelemetryRecord.MODE_DISABLED
+                : isAutonomous() ? TelemetryRecord.MODE_AUTONOMOUS
+                : isTest() ? TelemetryRecord.MODE_TEST : TelemetryRecord.MODE_TELEOP);
+        m_robotContainer.recordInputs(record);
+
+        final long startBytes = AllocationTracker.getAllocatedBytes();
+        final long startTime = System.nanoTime();
+
         CommandScheduler.getInstance().run();
+
+        LoopTiming.recordScheduler(System.nanoTime() - startTime);
+        AllocationTracker.recordLoop(startBytes);
+
+        final long dashboardStartTime = System.nanoTime();
+
+        DashboardPublisher.update();
+        m_dashboardNanos = System.nanoTime() - dashboardStartTime;
+
+        TelemetryLog.write(Timer.getFPGATimestamp());
+
+        LoopWatchdog.loopFinished();
+        m_robotPeriodicEndTime = System.nanoTime();
+    }
+
+    /**
+     * Runs one loop, timing the whole loop and the SmartDashboard, LiveWindow and
+     * Shuffleboard updates that follow robotPeriodic().
+     */
+    @Override
+    protected void loopFunc() {
+        final long startTime = System.nanoTime();
+
+        m_robotPeriodicEndTime = 0;
+        super.loopFunc();
+
+        final long endTime = System.nanoTime();
+
+        if (m_robotPeriodicEndTime != 0) {
+            LoopTiming.recordDashboard(m_dashboardNanos + endTime - m_robotPeriodicEndTime);
+        }
+        LoopTiming.recordLoop(endTime - startTime);
     }
 
     /**
@@ -73,7 +179,11 @@ public class Robot extends TimedRobot {
      */
     @Override
     public void autonomousInit() {
+        // Keep each match in its own telemetry log.
+        TelemetryLog.roll();
+
         m_autonomousCommand = m_robotContainer.getAutonomousCommand();
+        TelemetryLog.logEvent(AUTONOMOUS_ROUTINE_EVENT + m_robotContainer.getAutonomousRoutine());
 
         // schedule the autonomous command (example)
         if (m_autonomousCommand != null) {
@@ -7,13 +7,32 @@
 
 package frc.robot;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
 import edu.wpi.first.wpilibj.GenericHID;
+import edu.wpi.first.wpilibj.GenericHID.Hand;
 import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj.XboxController;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import frc.robot.commands.DriveManually;
 import frc.robot.commands.DriveStraight;
+import frc.robot.commands.FollowTrajectory;
+import frc.robot.commands.FollowTrajectoryWhenReady;
+import frc.robot.commands.TimedCommand;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.VisionSubsystem;
+import frc.robot.telemetry.TelemetryRecord;
+import frc.robot.trajectories.Trajectories;
+import frc.robot.trajectories.TrajectoryCache;
+import frc.robot.trajectories.TrajectoryService;
+import frc.robot.utilities.AllocationTracker;
+import frc.robot.utilities.CanBusLoad;
+import frc.robot.utilities.DashboardPublisher;
+import frc.robot.utilities.LoopTiming;
 import frc.robot.utilities.RobotPreferences;
 import edu.wpi.first.wpilibj2.command.Command;
 
@@ -26,7 +45,7 @@ import edu.wpi.first.wpilibj2.command.Command;
  */
 public class RobotContainer {
     // The robot's subsystems and commands are defined here...
-    private final DriveSubsystem driveSubsystem = new DriveSubsystem();
+    private final DriveSubsystem driveSubsystem;
     private final VisionSubsystem visionSubsystem = new VisionSubsystem();
 
     private final Joystick leftJoystick = new Joystick(0);
@@ -34,12 +53,42 @@ public class RobotContainer {
 
     private final XboxController xboxController = new XboxController(3);
 
-    private final Command autonomousCommand = new DriveStraight(driveSubsystem).withSpeed(0.5).forMeters(3.0);
+    // The chooser holds the names of the autonomous routines, so that the one
+    // selected can be logged and selected again in a replay.
+    private final Map<String, Supplier<Command>> autonomousRoutines = new LinkedHashMap<String, Supplier<Command>>();
+    private final SendableChooser<String> autonomousChooser = new SendableChooser<String>();
+    private String autonomousOverride;
 
     /**
      * The container for the robot. Contains subsystems, OI devices, and commands.
      */
     public RobotContainer() {
+        this(new DriveSubsystem());
+    }
+
+    /**
+     * The container for the robot, using the specified drive subsystem, e.g. one
+     * with a simulated gyro to replay a recorded match.
+     * 
+     * @param driveSubsystem The drive subsystem.
+     */
+    public RobotContainer(DriveSubsystem driveSubsystem) {
+        this.driveSubsystem = driveSubsystem;
+
+        // The trajectories are only loaded from the cache when autonomous starts.
+        addAutonomousRoutine("Drive Straight 3m", true,
+            () -> new TimedCommand(new DriveStraight(driveSubsystem).withSpeed(0.5).forMeters(3.0)));
+        addAutonomousRoutine("S-Curve", false,
+            () -> new TimedCommand(
+                new FollowTrajectory(driveSubsystem, TrajectoryCache.get(Trajectories.S_CURVE)).fromStart()));
+        Shuffleboard.getTab("Autonomous").add("Routine", autonomousChooser).withSize(2, 1);
+
+        // The path back to the starting pose depends on where the robot is, so it is
+        // generated in the background when the command starts.
+        Shuffleboard.getTab("Autonomous").add("Return to Start",
+            new TimedCommand(new FollowTrajectoryWhenReady(driveSubsystem,
+                () -> TrajectoryService.getTrajectory(driveSubsystem.getPosition(), new Pose2d()))));
+
         // Configure the button bindings
         configureButtonBindings();
 
@@ -47,9 +96,32 @@ public class RobotContainer {
 
         driveSubsystem.initShuffleboard();
         driveSubsystem.setDefaultCommand(
-            new DriveManually(driveSubsystem, leftJoystick, rightJoystick, xboxController));
+            new TimedCommand(new DriveManually(driveSubsystem, leftJoystick, rightJoystick, xboxController)));
 
+        visionSubsystem.startTargetReceiver();
         visionSubsystem.initShuffleboard();
+
+        LoopTiming.initShuffleboard();
+        AllocationTracker.initShuffleboard();
+        CanBusLoad.initShuffleboard();
+        DashboardPublisher.initShuffleboard();
+    }
+
+    /**
+     * Adds an autonomous routine to the chooser.
+     * 
+     * @param name      The name of the routine.
+     * @param isDefault If true, the routine is selected by default.
+     * @param factory   Creates the command that runs the routine.
+     */
+    private void addAutonomousRoutine(String name, boolean isDefault, Supplier<Command> factory) {
+        autonomousRoutines.put(name, factory);
+
+        if (isDefault) {
+            autonomousChooser.setDefaultOption(name, name);
+        } else {
+            autonomousChooser.addOption(name, name);
+        }
     }
 
     /**
@@ -61,12 +133,53 @@ public class RobotContainer {
     private void configureButtonBindings() {
     }
 
+    /**
+     * Records the operator inputs used to drive the robot, so that the match can
+     * be replayed.
+     * 
+     * @param record The telemetry record for the current loop.
+     */
+    public void recordInputs(TelemetryRecord record) {
+        record.setOperatorInputs(leftJoystick.getY(), rightJoystick.getY(), xboxController.getY(Hand.kLeft),
+                xboxController.getX(Hand.kRight));
+    }
+
+    /**
+     * Returns the name of the autonomous routine to run: the one selected with
+     * {@link #selectAutonomousRoutine}, if any, or else the one selected on the
+     * dashboard.
+     * 
+     * @return The name of the routine.
+     */
+    public String getAutonomousRoutine() {
+        return autonomousOverride != null ? autonomousOverride : autonomousChooser.getSelected();
+    }
+
+    /**
+     * Selects the autonomous routine instead of the dashboard, e.g. to replay the
+     * routine run in a recorded match.
+     * 
+     * @param name The name of the routine.
+     * 
+     * @return False if there is no routine with that name; the selection is not
+     *         changed.
+     */
+    public boolean selectAutonomousRoutine(String name) {
+        if (!autonomousRoutines.containsKey(name)) {
+            return false;
+        }
+
+        autonomousOverride = name;
+
+        return true;
+    }
+
     /**
      * Use this to pass the autonomous command to the main {@link Robot} class.
      *
      * @return the command to run in autonomous
      */
     public Command getAutonomousCommand() {
-        return autonomousCommand;
+        return autonomousRoutines.get(getAutonomousRoutine()).get();
     }
 }
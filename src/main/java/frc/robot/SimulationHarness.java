@@ -0,0 +1,157 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.GenericHID.Hand;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.EncoderSim;
+import edu.wpi.first.wpilibj.simulation.JoystickSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj.simulation.XboxControllerSim;
+import frc.robot.sensors.SettableGyro;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.telemetry.TelemetryRecord;
+
+/**
+ * Runs the robot code on the desktop against the simulation HAL, one loop at a
+ * time, with the driver station, controllers, encoders and gyro set by the
+ * caller. Used by {@link MatchReplay} and the allocation test.
+ *
+ * <p>
+ * The robot runs without telemetry logging or the thread policy, and with a
+ * {@link SettableGyro}. The simulated clock is paused, so it only moves when
+ * the caller steps it.
+ */
+final class SimulationHarness {
+
+    /**
+     * The robot, whose loop is run by the harness instead of the timer.
+     */
+    private static class SteppedRobot extends Robot {
+        SteppedRobot(SettableGyro gyro) {
+            super(() -> new RobotContainer(new DriveSubsystem(0, gyro)), false, false);
+        }
+
+        void step() {
+            loopFunc();
+        }
+    }
+
+    private final JoystickSim leftJoystick = new JoystickSim(0);
+    private final JoystickSim rightJoystick = new JoystickSim(1);
+    private final XboxControllerSim xboxController = new XboxControllerSim(3);
+    private final SettableGyro gyro = new SettableGyro();
+    private final SteppedRobot robot;
+
+    private EncoderSim leftEncoder;
+    private EncoderSim rightEncoder;
+
+    /**
+     * Initializes the simulation HAL and constructs the robot. The gyro can be
+     * set before the robot is initialized with {@link #robotInit()}.
+     */
+    SimulationHarness() {
+        HAL.initialize(500, 0);
+        SimHooks.pauseTiming();
+        DriverStationSim.setDsAttached(true);
+
+        leftJoystick.setAxisCount(5);
+        rightJoystick.setAxisCount(5);
+        xboxController.setAxisCount(6);
+
+        robot = new SteppedRobot(gyro);
+    }
+
+    /**
+     * Initializes the robot, creating its subsystems and commands.
+     */
+    void robotInit() {
+        robot.robotInit();
+
+        // The encoders can only be found once the drive subsystem has opened them.
+        leftEncoder = EncoderSim.createForChannel(2);
+        rightEncoder = EncoderSim.createForChannel(0);
+    }
+
+    /**
+     * Returns the robot container, once the robot has been initialized.
+     *
+     * @return The robot container.
+     */
+    RobotContainer getRobotContainer() {
+        return robot.getRobotContainer();
+    }
+
+    /**
+     * Sets the driver station mode.
+     *
+     * @param mode One of the TelemetryRecord.MODE_ constants.
+     */
+    void setMode(int mode) {
+        DriverStationSim.setEnabled(mode != TelemetryRecord.MODE_DISABLED);
+        DriverStationSim.setAutonomous(mode == TelemetryRecord.MODE_AUTONOMOUS);
+        DriverStationSim.setTest(mode == TelemetryRecord.MODE_TEST);
+    }
+
+    /**
+     * Sets the driver controller axes.
+     *
+     * @param leftStickY  The Y axis of the left joystick.
+     * @param rightStickY The Y axis of the right joystick.
+     * @param xboxLeftY   The Y axis of the Xbox controller's left stick.
+     * @param xboxRightX  The X axis of the Xbox controller's right stick.
+     */
+    void setControllers(double leftStickY, double rightStickY, double xboxLeftY, double xboxRightX) {
+        leftJoystick.setY(leftStickY);
+        rightJoystick.setY(rightStickY);
+        xboxController.setY(Hand.kLeft, xboxLeftY);
+        xboxController.setX(Hand.kRight, xboxRightX);
+        DriverStationSim.notifyNewData();
+    }
+
+    /**
+     * Sets the drive encoders. The distances are rounded to whole pulses.
+     *
+     * @param leftDistance  The left distance, in meters.
+     * @param rightDistance The right distance, in meters.
+     * @param leftRate      The left rate, in meters per second.
+     * @param rightRate     The right rate, in meters per second.
+     */
+    void setEncoders(double leftDistance, double rightDistance, double leftRate, double rightRate) {
+        leftEncoder.setCount((int) Math.round(leftDistance / Constants.kEncoderDistancePerPulse));
+        rightEncoder.setCount((int) Math.round(rightDistance / Constants.kEncoderDistancePerPulse));
+        leftEncoder.setRate(leftRate);
+        rightEncoder.setRate(rightRate);
+    }
+
+    /**
+     * Sets the gyro.
+     *
+     * @param angle The heading, in degrees.
+     * @param rate  The turn rate, in degrees per second.
+     */
+    void setGyro(double angle, double rate) {
+        gyro.set(angle, rate);
+    }
+
+    /**
+     * Runs one pass of the robot loop.
+     */
+    void step() {
+        robot.step();
+    }
+
+    /**
+     * Disables the robot and lets the simulated clock run again.
+     */
+    void close() {
+        DriverStationSim.setEnabled(false);
+        SimHooks.resumeTiming();
+    }
+}
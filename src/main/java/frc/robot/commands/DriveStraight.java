@@ -8,14 +8,22 @@
 package frc.robot.commands;
 
 import edu.wpi.first.wpilibj.controller.PIDController;
-import edu.wpi.first.wpilibj.geometry.Translation2d;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.utilities.PoseSnapshot;
 import frc.robot.utilities.RobotPreferencesValue;
 import frc.robot.utilities.RobotPreferences.DoubleValue;
 
 /**
  * Drives the robot on the current heading in a straight line.
+ *
+ * <p>
+ * The command reuses its PID controller and position snapshot each time it is
+ * scheduled, so it does not allocate while it runs.
+ *
+ * <p>
+ * Changes to the gains in the preferences are picked up at the start of each
+ * loop while the command runs, so they can be tuned without rescheduling it.
  */
 public class DriveStraight extends CommandBase {
 
@@ -100,16 +108,23 @@ public class DriveStraight extends CommandBase {
         protected DriveSubsystem drive;
         protected ConstantSpeedTranslation maxSpeed;
         protected double distance;
-        protected Translation2d initialPosition;
+        protected double initialX;
+        protected double initialY;
+        protected final PoseSnapshot position = new PoseSnapshot();
 
         DistanceTranslation(DriveSubsystem drive, ConstantSpeedTranslation maxSpeed, double distance) {
             this.drive = drive;
             this.maxSpeed = maxSpeed;
+            this.distance = distance;
         }
 
         @Override
         public void initialize() {
-            initialPosition = drive.getPosition().getTranslation();
+            maxSpeed.initialize();
+
+            drive.getPosition(position);
+            initialX = position.getX();
+            initialY = position.getY();
         }
 
         @Override
@@ -119,7 +134,13 @@ public class DriveStraight extends CommandBase {
 
         @Override
         public boolean isFinished() {
-            return drive.getPosition().getTranslation().getDistance(initialPosition) >= distance;
+            drive.getPosition(position);
+
+            final double dx = position.getX() - initialX;
+            final double dy = position.getY() - initialY;
+
+            // Compare the squared distances to avoid the square root.
+            return dx * dx + dy * dy >= distance * distance;
         }
     }
 
@@ -135,7 +156,7 @@ public class DriveStraight extends CommandBase {
     private static final ConstantSpeedTranslation DEFAULT_SPEED_CONTROLLER = new PreferencesSpeedTranslation();
 
     private final DriveSubsystem drive;
-    private PIDController pid;
+    private final PIDController pid;
     private TranslationController translationController = DEFAULT_SPEED_CONTROLLER;
 
     /**
@@ -145,6 +166,8 @@ public class DriveStraight extends CommandBase {
      */
     public DriveStraight(DriveSubsystem drive) {
         this.drive = drive;
+        this.pid = new PIDController(DRIVE_STRAIGHT_P.getValue(), DRIVE_STRAIGHT_I.getValue(),
+                DRIVE_STRAIGHT_D.getValue());
         addRequirements(drive);
     }
 
@@ -180,8 +203,11 @@ public class DriveStraight extends CommandBase {
      */
     @Override
     public void initialize() {
-        this.pid = new PIDController(DRIVE_STRAIGHT_P.getValue(), DRIVE_STRAIGHT_I.getValue(),
-                DRIVE_STRAIGHT_D.getValue());
+        this.translationController.initialize();
+
+        // Pick up any changes to the gains and clear the state left from the last run.
+        this.pid.setPID(DRIVE_STRAIGHT_P.getValue(), DRIVE_STRAIGHT_I.getValue(), DRIVE_STRAIGHT_D.getValue());
+        this.pid.reset();
         this.pid.setSetpoint(this.drive.getHeading());
     }
 
@@ -191,11 +217,40 @@ public class DriveStraight extends CommandBase {
      */
     @Override
     public void execute() {
+        updateGains();
+
         double rotation = this.pid.calculate(this.drive.getHeading());
 
         this.drive.arcadeDrive(this.translationController.getSpeed(), rotation, false);
     }
 
+    /**
+     * Applies any changes to the gains in the preferences. The preferences values
+     * are cached and refreshed by a NetworkTables listener, so this is only three
+     * volatile reads unless a gain has changed.
+     *
+     * <p>
+     * The controller is not reset when a gain changes. A reset would clear the
+     * previous error as well as the accumulated error, and the derivative term
+     * would then kick on the next loop. The accumulated error is kept, so the
+     * integral term scales with a new I gain.
+     */
+    private void updateGains() {
+        final double p = DRIVE_STRAIGHT_P.getValue();
+        final double i = DRIVE_STRAIGHT_I.getValue();
+        final double d = DRIVE_STRAIGHT_D.getValue();
+
+        if (p != this.pid.getP()) {
+            this.pid.setP(p);
+        }
+        if (i != this.pid.getI()) {
+            this.pid.setI(i);
+        }
+        if (d != this.pid.getD()) {
+            this.pid.setD(d);
+        }
+    }
+
     /**
      * Returns true when the end conditions have been met.
      */
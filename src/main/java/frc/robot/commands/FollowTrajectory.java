@@ -0,0 +1,77 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.controller.PIDController;
+import edu.wpi.first.wpilibj.controller.RamseteController;
+import edu.wpi.first.wpilibj.controller.SimpleMotorFeedforward;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import edu.wpi.first.wpilibj2.command.RamseteCommand;
+import frc.robot.Constants;
+import frc.robot.subsystems.DriveSubsystem;
+
+/**
+ * Drives the robot along a trajectory using a RAMSETE controller.
+ */
+public class FollowTrajectory extends RamseteCommand {
+
+    private final DriveSubsystem drive;
+    private final Trajectory trajectory;
+    private boolean resetOdometry;
+
+    /**
+     * Constructs an instance of this class.
+     * 
+     * @param drive      The drive subsystem.
+     * @param trajectory The trajectory to follow.
+     */
+    public FollowTrajectory(DriveSubsystem drive, Trajectory trajectory) {
+        super(trajectory,
+            drive::getPosition,
+            new RamseteController(Constants.kRamseteB, Constants.kRamseteZeta),
+            new SimpleMotorFeedforward(Constants.ksVolts, Constants.kvVoltSecondsPerMeter,
+                Constants.kaVoltSecondsSquaredPerMeter),
+            Constants.kDriveKinematics,
+            drive::getWheelSpeeds,
+            new PIDController(Constants.kPDriveVel, 0.0, 0.0),
+            new PIDController(Constants.kPDriveVel, 0.0, 0.0),
+            drive::tankDriveVolts,
+            drive);
+
+        this.drive = drive;
+        this.trajectory = trajectory;
+    }
+
+    /**
+     * Resets the odometry to the start of the trajectory when the command starts,
+     * i.e. assumes the robot has been placed at the start of the trajectory.
+     * 
+     * @return This object.
+     */
+    public FollowTrajectory fromStart() {
+        this.resetOdometry = true;
+
+        return this;
+    }
+
+    @Override
+    public void initialize() {
+        if (resetOdometry) {
+            drive.resetOdometry(trajectory.getInitialPose());
+        }
+
+        super.initialize();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        super.end(interrupted);
+
+        drive.tankDriveVolts(0.0, 0.0);
+    }
+}
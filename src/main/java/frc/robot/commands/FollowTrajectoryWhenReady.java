@@ -0,0 +1,93 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.commands;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.DriveSubsystem;
+
+/**
+ * Follows a trajectory that is generated in the background when the command
+ * starts, e.g. by the {@link frc.robot.trajectories.TrajectoryService}.
+ *
+ * <p>
+ * The trajectory is requested in {@link #initialize()}. Until it is ready, the
+ * command holds the robot still; each loop it only checks whether the future
+ * has completed, so the scheduler never waits for the generator. Once the
+ * trajectory is ready, it is followed by a {@link FollowTrajectory} command run
+ * by this one.
+ */
+public class FollowTrajectoryWhenReady extends CommandBase {
+
+    private final DriveSubsystem drive;
+    private final Supplier<CompletableFuture<Trajectory>> request;
+    private CompletableFuture<Trajectory> future;
+    private FollowTrajectory follower;
+    private boolean failed;
+
+    /**
+     * Constructs an instance of this class.
+     * 
+     * @param drive   The drive subsystem.
+     * @param request Requests the trajectory when the command starts.
+     */
+    public FollowTrajectoryWhenReady(DriveSubsystem drive, Supplier<CompletableFuture<Trajectory>> request) {
+        this.drive = drive;
+        this.request = request;
+        addRequirements(drive);
+    }
+
+    @Override
+    public void initialize() {
+        future = request.get();
+        follower = null;
+        failed = false;
+    }
+
+    @Override
+    public void execute() {
+        if (follower == null) {
+            if (!future.isDone()) {
+                drive.tankDriveVolts(0.0, 0.0);
+                return;
+            }
+
+            final Trajectory trajectory;
+
+            try {
+                trajectory = future.join();
+            } catch (RuntimeException e) {
+                System.out.println("TRAJECTORY GENERATION FAILED: " + e.getMessage());
+                failed = true;
+                return;
+            }
+
+            follower = new FollowTrajectory(drive, trajectory);
+            follower.initialize();
+        }
+
+        follower.execute();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return failed || (follower != null && follower.isFinished());
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        if (follower != null) {
+            follower.end(interrupted);
+        } else {
+            drive.tankDriveVolts(0.0, 0.0);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import edu.wpi.first.wpilibj2.command.CommandGroupBase;
+import frc.robot.utilities.AllocationTracker;
+import frc.robot.utilities.LatencyHistogram;
+import frc.robot.utilities.LoopTiming;
+
+/**
+ * Wraps a command, recording how long each call to its execute() and
+ * isFinished() methods takes, and how many bytes they allocate. Commands of the
+ * same name share histograms and allocation counters.
+ */
+public class TimedCommand extends CommandBase {
+
+    private final Command command;
+    private final LatencyHistogram executeTiming;
+    private final LatencyHistogram isFinishedTiming;
+    private final AllocationTracker.Counter executeAllocations;
+    private final AllocationTracker.Counter isFinishedAllocations;
+
+    /**
+     * Constructs an instance of this class.
+     * 
+     * @param command The command to time. It may not be scheduled on its own or
+     *                be part of another group.
+     */
+    public TimedCommand(Command command) {
+        CommandGroupBase.requireUngrouped(command);
+        CommandGroupBase.registerGroupedCommands(command);
+
+        this.command = command;
+        this.executeTiming = LoopTiming.getHistogram(command.getName() + ".execute");
+        this.isFinishedTiming = LoopTiming.getHistogram(command.getName() + ".isFinished");
+        this.executeAllocations = AllocationTracker.getCounter(command.getName() + ".execute");
+        this.isFinishedAllocations = AllocationTracker.getCounter(command.getName() + ".isFinished");
+
+        m_requirements.addAll(command.getRequirements());
+        setName(command.getName());
+    }
+
+    @Override
+    public void initialize() {
+        command.initialize();
+    }
+
+    @Override
+    public void execute() {
+        final long startBytes = AllocationTracker.getAllocatedBytes();
+        final long startTime = System.nanoTime();
+
+        command.execute();
+
+        executeTiming.record(System.nanoTime() - startTime);
+        executeAllocations.record(startBytes);
+    }
+
+    @Override
+    public boolean isFinished() {
+        final long startBytes = AllocationTracker.getAllocatedBytes();
+        final long startTime = System.nanoTime();
+        final boolean finished = command.isFinished();
+
+        isFinishedTiming.record(System.nanoTime() - startTime);
+        isFinishedAllocations.record(startBytes);
+
+        return finished;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        command.end(interrupted);
+    }
+
+    @Override
+    public boolean runsWhenDisabled() {
+        return command.runsWhenDisabled();
+    }
+}
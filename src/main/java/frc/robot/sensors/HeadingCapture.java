@@ -0,0 +1,167 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.sensors;
+
+import com.kauailabs.navx.AHRSProtocol.AHRSUpdateBase;
+import com.kauailabs.navx.frc.AHRS;
+import com.kauailabs.navx.frc.ITimestampedDataSubscriber;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.interfaces.Gyro;
+
+/**
+ * Captures every heading sample from a gyro as it arrives, rather than polling
+ * it once per loop.
+ *
+ * <p>
+ * The navX calls back from its I/O thread each time it sends an update (up to
+ * 200 Hz). The yaw in each update is unwrapped into a total accumulated
+ * heading, starting from the gyro's angle when the first update arrives, and
+ * added to a {@link HeadingRing} that the robot threads read without locking.
+ *
+ * <p>
+ * When the gyro is reset, {@link #reset()} must be called so that the heading
+ * is taken from the gyro's angle again. Until the next update arrives, there is
+ * no heading to read, and the samples from before the reset are not used to
+ * estimate the turn rate.
+ */
+public class HeadingCapture {
+
+    private static final int CAPACITY = 64;
+    // 25ms of samples at 200 Hz.
+    private static final int RATE_WINDOW = 5;
+
+    /**
+     * Passes the navX updates to a capture.
+     */
+    private static class NavXSubscriber implements ITimestampedDataSubscriber {
+        private final HeadingCapture capture;
+
+        NavXSubscriber(HeadingCapture capture) {
+            this.capture = capture;
+        }
+
+        @Override
+        public void timestampedDataReceived(long systemTimestamp, long sensorTimestamp, AHRSUpdateBase update,
+                Object context) {
+            capture.addSample(Timer.getFPGATimestamp(), sensorTimestamp / 1000.0, update.yaw);
+        }
+    }
+
+    private final Gyro gyro;
+    private final HeadingRing ring = new HeadingRing(CAPACITY);
+
+    // Set by reset(), and cleared by the thread that adds the samples when it
+    // takes the heading from the gyro's angle.
+    private volatile boolean reseed = true;
+    // The number of samples added before the heading was last taken from the
+    // gyro's angle, which are no longer read.
+    private volatile long staleCount;
+
+    // Only used by the thread that adds the samples.
+    private double lastYaw;
+    private double heading;
+
+    /**
+     * Constructs an instance of this class. Samples must be added by calling
+     * {@link #addSample}; use {@link #attach} to capture the samples from a navX.
+     *
+     * @param gyro The gyro, whose angle is used as the starting heading.
+     */
+    public HeadingCapture(Gyro gyro) {
+        this.gyro = gyro;
+    }
+
+    /**
+     * Starts capturing the samples from a gyro, if it supports it.
+     *
+     * @param gyro The gyro.
+     *
+     * @return The capture, or null if the gyro does not deliver samples as they
+     *         arrive.
+     */
+    public static HeadingCapture attach(Gyro gyro) {
+        final HeadingCapture capture = new HeadingCapture(gyro);
+
+        if (gyro instanceof AHRS) {
+            ((AHRS) gyro).registerCallback(new NavXSubscriber(capture), null);
+        } else if (gyro instanceof IHeadingSource) {
+            ((IHeadingSource) gyro).setCapture(capture);
+        } else {
+            return null;
+        }
+
+        return capture;
+    }
+
+    /**
+     * Adds a sample. Must only be called from one thread.
+     *
+     * @param timestamp  The time at which the sample was received, in seconds of
+     *                   FPGA time.
+     * @param sensorTime The time at which the gyro took the sample, in seconds of
+     *                   the gyro's clock.
+     * @param yaw        The yaw angle, in degrees from -180 to 180.
+     */
+    public void addSample(double timestamp, double sensorTime, double yaw) {
+        if (reseed) {
+            reseed = false;
+            heading = gyro.getAngle();
+            staleCount = ring.getCount();
+        } else {
+            double delta = yaw - lastYaw;
+
+            if (delta > 180.0) {
+                delta -= 360.0;
+            } else if (delta < -180.0) {
+                delta += 360.0;
+            }
+            heading += delta;
+        }
+
+        lastYaw = yaw;
+        ring.add(timestamp, sensorTime, heading);
+    }
+
+    /**
+     * Takes the heading from the gyro's angle again when the next sample arrives,
+     * e.g. after the gyro has been reset. May be called from any thread.
+     */
+    public void reset() {
+        // Hide the old samples until the writer has taken the new heading.
+        staleCount = Long.MAX_VALUE;
+        reseed = true;
+    }
+
+    /**
+     * Reads the latest heading sample and the estimated turn rate.
+     *
+     * @param sample The sample to fill in.
+     *
+     * @return False if no samples have arrived since the capture was started or
+     *         reset.
+     */
+    public boolean read(HeadingSample sample) {
+        final long samples = ring.getCount() - staleCount;
+
+        if (samples <= 0) {
+            return false;
+        }
+
+        return ring.read(sample, (int) Math.min(RATE_WINDOW, samples));
+    }
+
+    /**
+     * Returns the number of samples captured.
+     *
+     * @return The number of samples.
+     */
+    public long getSampleCount() {
+        return ring.getCount();
+    }
+}
@@ -0,0 +1,165 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.sensors;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * A fixed-capacity ring of timestamped gyro heading samples, written by the
+ * thread that receives them from the gyro and read by the robot threads.
+ *
+ * <p>
+ * The samples are kept in primitive arrays, so neither adding nor reading a
+ * sample allocates. One thread adds samples; any thread may read them. Like
+ * {@link frc.robot.utilities.PoseHistory}, readers use a sequence number to
+ * detect a concurrent write and retry, so the writer never waits.
+ *
+ * <p>
+ * The turn rate is estimated by a least-squares fit of the heading over the
+ * latest few samples, using the gyro's own sample times, which is less noisy
+ * than the difference between two samples.
+ */
+public class HeadingRing {
+
+    private final int mask;
+    private final double[] timestamps;
+    private final double[] sensorTimes;
+    private final double[] headings;
+
+    private volatile long sequence;
+    private long count;
+
+    /**
+     * Constructs an instance of this class.
+     *
+     * @param capacity The minimum number of samples to keep. It is rounded up to
+     *                 a power of two.
+     */
+    public HeadingRing(int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+
+        mask = size - 1;
+        timestamps = new double[size];
+        sensorTimes = new double[size];
+        headings = new double[size];
+    }
+
+    /**
+     * Adds a sample, replacing the oldest one if the ring is full. Must only be
+     * called from the writer thread.
+     *
+     * @param timestamp  The time at which the sample was received, in seconds of
+     *                   FPGA time.
+     * @param sensorTime The time at which the gyro took the sample, in seconds of
+     *                   the gyro's clock.
+     * @param heading    The total accumulated yaw angle of the gyro, in degrees.
+     */
+    public void add(double timestamp, double sensorTime, double heading) {
+        final long start = sequence;
+        final int index = (int) count & mask;
+
+        sequence = start + 1;
+        VarHandle.storeStoreFence();
+
+        timestamps[index] = timestamp;
+        sensorTimes[index] = sensorTime;
+        headings[index] = heading;
+        count++;
+
+        sequence = start + 2;
+    }
+
+    /**
+     * Returns the number of samples added.
+     *
+     * @return The number of samples.
+     */
+    public long getCount() {
+        long start;
+        long result;
+
+        do {
+            start = sequence;
+            result = count;
+            VarHandle.loadLoadFence();
+        } while ((start & 1) != 0 || start != sequence);
+
+        return result;
+    }
+
+    /**
+     * Reads the latest sample, estimating the turn rate from the samples before
+     * it.
+     *
+     * @param sample The sample to fill in.
+     * @param window The number of samples the turn rate is fitted to. It is
+     *               limited to the capacity of the ring.
+     *
+     * @return False if no samples have been added, in which case the sample is
+     *         not changed.
+     */
+    public boolean read(HeadingSample sample, int window) {
+        final int limit = Math.min(window, mask + 1);
+        long start;
+        long available;
+        double timestamp;
+        double heading;
+        double rate;
+
+        do {
+            start = sequence;
+            available = count;
+            timestamp = 0.0;
+            heading = 0.0;
+            rate = 0.0;
+
+            if (available > 0) {
+                final int latest = (int) (available - 1) & mask;
+                final int samples = (int) Math.min(limit, available);
+                final double latestTime = sensorTimes[latest];
+                double sumT = 0.0;
+                double sumH = 0.0;
+                double sumTT = 0.0;
+                double sumTH = 0.0;
+
+                timestamp = timestamps[latest];
+                heading = headings[latest];
+
+                // Fit relative to the latest sample to keep the sums small.
+                for (int i = 0; i < samples; i++) {
+                    final int index = (int) (available - 1 - i) & mask;
+                    final double t = sensorTimes[index] - latestTime;
+                    final double h = headings[index] - heading;
+
+                    sumT += t;
+                    sumH += h;
+                    sumTT += t * t;
+                    sumTH += t * h;
+                }
+
+                final double denominator = samples * sumTT - sumT * sumT;
+
+                if (denominator > 0.0) {
+                    rate = (samples * sumTH - sumT * sumH) / denominator;
+                }
+            }
+
+            VarHandle.loadLoadFence();
+        } while ((start & 1) != 0 || start != sequence);
+
+        if (available == 0) {
+            return false;
+        }
+
+        sample.timestamp = timestamp;
+        sample.heading = heading;
+        sample.rate = rate;
+
+        return true;
+    }
+}
@@ -0,0 +1,46 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.sensors;
+
+/**
+ * A gyro heading sample and the turn rate estimated from the samples before
+ * it. Readers should allocate one up front and reuse it, so that reading the
+ * heading does not allocate.
+ */
+public class HeadingSample {
+    double timestamp;
+    double heading;
+    double rate;
+
+    /**
+     * Returns the time at which the sample was received.
+     *
+     * @return The FPGA time, in seconds.
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the total accumulated yaw angle of the gyro.
+     *
+     * @return The heading, in degrees.
+     */
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * Returns the estimated rate of change of yaw of the gyro.
+     *
+     * @return The turn rate, in degrees per second.
+     */
+    public double getRate() {
+        return rate;
+    }
+}
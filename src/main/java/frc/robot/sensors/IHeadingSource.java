@@ -0,0 +1,21 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.sensors;
+
+/**
+ * A gyro, other than the navX, that delivers its heading samples to a
+ * {@link HeadingCapture} as they arrive.
+ */
+public interface IHeadingSource {
+    /**
+     * Sets the capture the samples are delivered to.
+     *
+     * @param capture The capture.
+     */
+    void setCapture(HeadingCapture capture);
+}
@@ -0,0 +1,55 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.sensors;
+
+import edu.wpi.first.wpilibj.interfaces.Gyro;
+
+/**
+ * A gyro whose angle and rate are set by the caller, for replays and tests
+ * that drive the robot code on the desktop. Resetting it sets the angle to
+ * zero.
+ */
+public class SettableGyro implements Gyro {
+
+    private double angle;
+    private double rate;
+
+    /**
+     * Sets the angle and rate that the gyro reports.
+     *
+     * @param angle The angle, in degrees.
+     * @param rate  The rate, in degrees per second.
+     */
+    public void set(double angle, double rate) {
+        this.angle = angle;
+        this.rate = rate;
+    }
+
+    @Override
+    public void calibrate() {
+    }
+
+    @Override
+    public void reset() {
+        angle = 0.0;
+    }
+
+    @Override
+    public double getAngle() {
+        return angle;
+    }
+
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+    @Override
+    public void close() {
+    }
+}
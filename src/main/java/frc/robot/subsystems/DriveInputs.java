@@ -0,0 +1,161 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.subsystems;
+
+/**
+ * The drive sensor values read at the start of a loop.
+ *
+ * <p>
+ * The drive subsystem reads each sensor once per loop into a single instance
+ * of this class, so that every command and dashboard value in the loop sees the
+ * same values. It must only be used from the main robot thread.
+ */
+public final class DriveInputs {
+
+    private double timestamp;
+    private double leftDistance;
+    private double rightDistance;
+    private double leftRate;
+    private double rightRate;
+    private double leftVelocity;
+    private double rightVelocity;
+    private double heading;
+    private double turnRate;
+
+    DriveInputs() {
+    }
+
+    /**
+     * Sets the encoder values.
+     * 
+     * @param leftDistance  The left distance, in meters.
+     * @param rightDistance The right distance, in meters.
+     * @param leftRate      The left rate, in meters per second.
+     * @param rightRate     The right rate, in meters per second.
+     */
+    void setEncoders(double leftDistance, double rightDistance, double leftRate, double rightRate) {
+        this.leftDistance = leftDistance;
+        this.rightDistance = rightDistance;
+        this.leftRate = leftRate;
+        this.rightRate = rightRate;
+    }
+
+    /**
+     * Sets the estimated wheel velocities.
+     * 
+     * @param leftVelocity  The left velocity, in meters per second.
+     * @param rightVelocity The right velocity, in meters per second.
+     */
+    void setVelocities(double leftVelocity, double rightVelocity) {
+        this.leftVelocity = leftVelocity;
+        this.rightVelocity = rightVelocity;
+    }
+
+    /**
+     * Sets the gyro values.
+     * 
+     * @param heading  The heading, in degrees.
+     * @param turnRate The turn rate, in degrees per second.
+     */
+    void setGyro(double heading, double turnRate) {
+        this.heading = heading;
+        this.turnRate = turnRate;
+    }
+
+    /**
+     * Sets the time the sensors were read.
+     * 
+     * @param timestamp The FPGA time, in seconds.
+     */
+    void setTimestamp(double timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Returns the time the sensors were read.
+     * 
+     * @return The FPGA time, in seconds.
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the distance travelled by the left wheels.
+     * 
+     * @return The distance, in meters.
+     */
+    public double getLeftDistance() {
+        return leftDistance;
+    }
+
+    /**
+     * Returns the distance travelled by the right wheels.
+     * 
+     * @return The distance, in meters.
+     */
+    public double getRightDistance() {
+        return rightDistance;
+    }
+
+    /**
+     * Returns the speed of the left wheels.
+     * 
+     * @return The speed, in meters per second.
+     */
+    public double getLeftRate() {
+        return leftRate;
+    }
+
+    /**
+     * Returns the speed of the right wheels.
+     * 
+     * @return The speed, in meters per second.
+     */
+    public double getRightRate() {
+        return rightRate;
+    }
+
+    /**
+     * Returns the speed of the left wheels, estimated from the recent distances.
+     * This is much less noisy than the encoder rate.
+     * 
+     * @return The speed, in meters per second.
+     */
+    public double getLeftVelocity() {
+        return leftVelocity;
+    }
+
+    /**
+     * Returns the speed of the right wheels, estimated from the recent distances.
+     * This is much less noisy than the encoder rate.
+     * 
+     * @return The speed, in meters per second.
+     */
+    public double getRightVelocity() {
+        return rightVelocity;
+    }
+
+    /**
+     * Returns the total accumulated yaw angle of the gyro.
+     * 
+     * @return The heading, in degrees.
+     */
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * Returns the rate of change of yaw of the gyro.
+     * 
+     * @return The turn rate, in degrees per second.
+     */
+    public double getTurnRate() {
+        return turnRate;
+    }
+}
@@ -7,52 +7,232 @@
 
 package frc.robot.subsystems;
 
+import com.ctre.phoenix.motorcontrol.StatusFrame;
 import com.ctre.phoenix.motorcontrol.can.WPI_VictorSPX;
 import com.kauailabs.navx.frc.AHRS;
 
 import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.SPI;
 import edu.wpi.first.wpilibj.SpeedController;
-import edu.wpi.first.wpilibj.SpeedControllerGroup;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.drive.DifferentialDrive;
 import edu.wpi.first.wpilibj.geometry.Pose2d;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.interfaces.Gyro;
 import edu.wpi.first.wpilibj.kinematics.DifferentialDriveOdometry;
+import edu.wpi.first.wpilibj.kinematics.DifferentialDriveWheelSpeeds;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
 import frc.robot.commands.DriveStraight;
+import frc.robot.commands.TimedCommand;
+import frc.robot.sensors.HeadingCapture;
+import frc.robot.sensors.HeadingSample;
+import frc.robot.telemetry.TelemetryLog;
+import frc.robot.telemetry.TelemetryRecord;
+import frc.robot.utilities.CanBusLoad;
+import frc.robot.utilities.DashboardPublisher;
+import frc.robot.utilities.FilteredSpeedController;
+import frc.robot.utilities.PoseHistory;
+import frc.robot.utilities.PoseSeqLock;
+import frc.robot.utilities.PoseSnapshot;
+import frc.robot.utilities.RobotPreferencesValue;
+import frc.robot.utilities.ThreadPolicy;
+import frc.robot.utilities.VelocityEstimator;
+import frc.robot.utilities.RobotPreferences.BooleanValue;
+import frc.robot.utilities.RobotPreferences.DoubleValue;
+import frc.robot.utilities.RobotPreferences.IntegerValue;
 
 /** A class implementing the robot drive subsystem. */
-public class DriveSubsystem extends SubsystemBase {
+public class DriveSubsystem extends TimedSubsystemBase {
 
-    private SpeedController leftMotor = new SpeedControllerGroup(new WPI_VictorSPX(1),
-                                                                 new WPI_VictorSPX(2),
-                                                                 new WPI_VictorSPX(3));
-    private SpeedController rightMotor = new SpeedControllerGroup(new WPI_VictorSPX(4),
-                                                                  new WPI_VictorSPX(5),
-                                                                  new WPI_VictorSPX(6));
+    @RobotPreferencesValue
+    public static IntegerValue ODOMETRY_RATE = new IntegerValue("DriveSubsystem/OdometryRateHz", 200);
+    @RobotPreferencesValue
+    public static DoubleValue OUTPUT_EPSILON = new DoubleValue("DriveSubsystem/OutputEpsilon", 0.002);
+    @RobotPreferencesValue
+    public static IntegerValue VELOCITY_WINDOW = new IntegerValue("DriveSubsystem/VelocityWindow", 8);
+    @RobotPreferencesValue
+    public static BooleanValue VELOCITY_MEDIAN = new BooleanValue("DriveSubsystem/VelocityMedian", false);
+
+    // The status frames sent by the motor controllers and their default periods,
+    // in milliseconds. None of them are read, as the encoders and gyro are
+    // connected to the roboRIO, so they are sent at the slowest period except for
+    // the general status of the leaders, which reports their faults.
+    private static final StatusFrame[] STATUS_FRAMES = {
+        StatusFrame.Status_1_General,
+        StatusFrame.Status_2_Feedback0,
+        StatusFrame.Status_4_AinTempVbat,
+        StatusFrame.Status_10_MotionMagic,
+        StatusFrame.Status_13_Base_PIDF0,
+        StatusFrame.Status_14_Turn_PIDF1
+    };
+    private static final int[] DEFAULT_STATUS_FRAME_PERIODS = { 10, 20, 160, 160, 160, 160 };
+    private static final int SLOW_STATUS_FRAME_PERIOD = 255;
+    private static final int CONTROL_FRAME_PERIOD = 10;
+
+    // Each side is driven by a leader, which the other controllers on the side
+    // follow, so only the leaders are set on each loop.
+    private FilteredSpeedController leftMotor = new FilteredSpeedController(createMotors(1, 2, 3),
+                                                                            OUTPUT_EPSILON.getValue());
+    private FilteredSpeedController rightMotor = new FilteredSpeedController(createMotors(4, 5, 6),
+                                                                             OUTPUT_EPSILON.getValue());
 
     private DifferentialDrive driveBase = new DifferentialDrive(leftMotor, rightMotor);
 
-    private AHRS navx = new AHRS();
+    // The rate at which the navX sends updates, in Hz.
+    private static final int GYRO_UPDATE_RATE = 200;
+
+    private final Gyro gyro;
+    private final HeadingCapture headingCapture;
+    private final HeadingSample inputsHeading = new HeadingSample();
+    private final HeadingSample odometryHeading = new HeadingSample();
 
     private Encoder leftEncoder = new Encoder(2, 3);
     private Encoder rightEncoder = new Encoder(0, 1);
 
-    private DifferentialDriveOdometry odometry = new DifferentialDriveOdometry(new Rotation2d());
+    private final DifferentialDriveOdometry odometry = new DifferentialDriveOdometry(new Rotation2d());
+
+    // The wheel velocities are estimated from the distances read for the odometry.
+    private final VelocityEstimator leftVelocity;
+    private final VelocityEstimator rightVelocity;
+
+    // Keep enough pose history to cover the latency of the vision pipeline.
+    private static final double POSE_HISTORY_SECONDS = 1.0;
+
+    private final DriveInputs inputs = new DriveInputs();
+    private final PoseSeqLock pose = new PoseSeqLock();
+    private final PoseSnapshot dashboardPose = new PoseSnapshot();
+    private final PoseSnapshot telemetryPose = new PoseSnapshot();
+    private final PoseHistory history;
+    private final Notifier odometryNotifier;
 
     /**
-     * Constructs an instance of this class.
+     * Constructs an instance of this class, running odometry at the rate stored in
+     * the preferences.
      */
     public DriveSubsystem() {
+        this(ODOMETRY_RATE.getValue());
+    }
+
+    /**
+     * Constructs an instance of this class.
+     * 
+     * @param odometryRate The rate at which odometry is updated on its own thread,
+     *                     in Hz. If zero, odometry is updated once per scheduler
+     *                     run instead.
+     */
+    public DriveSubsystem(int odometryRate) {
+        this(odometryRate, new AHRS(SPI.Port.kMXP, (byte) GYRO_UPDATE_RATE));
+    }
+
+    /**
+     * Constructs an instance of this class with a specified gyro, e.g. to replay a
+     * recorded match.
+     * 
+     * @param odometryRate The rate at which odometry is updated on its own thread,
+     *                     in Hz. If zero, odometry is updated once per scheduler
+     *                     run instead.
+     * @param gyro         The gyro used to measure the robot heading. If it
+     *                     delivers its samples as they arrive (i.e. a navX), the
+     *                     heading is taken from the latest sample.
+     */
+    public DriveSubsystem(int odometryRate, Gyro gyro) {
+        this.gyro = gyro;
+        this.headingCapture = HeadingCapture.attach(gyro);
+
         leftEncoder.setDistancePerPulse(Constants.kEncoderDistancePerPulse);
         leftEncoder.setReverseDirection(false);
         rightEncoder.setDistancePerPulse(Constants.kEncoderDistancePerPulse);
         rightEncoder.setReverseDirection(true);
+
+        // Without an odometry thread, odometry is updated once per 20ms scheduler run.
+        final int updateRate = odometryRate > 0 ? odometryRate : 50;
+
+        history = new PoseHistory((int) Math.ceil(POSE_HISTORY_SECONDS * updateRate));
+        leftVelocity = createVelocityEstimator(updateRate);
+        rightVelocity = createVelocityEstimator(updateRate);
+
+        updateOdometry();
+
+        if (odometryRate > 0) {
+            odometryNotifier = new Notifier(
+                ThreadPolicy.realTime("Odometry", ThreadPolicy.ODOMETRY_PRIORITY, this::updateOdometry));
+            odometryNotifier.setName("Odometry");
+            odometryNotifier.startPeriodic(1.0 / odometryRate);
+        } else {
+            odometryNotifier = null;
+        }
+
+        readInputs();
+    }
+
+    /**
+     * Creates a wheel velocity estimator using the filter stored in the
+     * preferences.
+     *
+     * <p>
+     * The window in the preferences is a number of samples at the odometry rate
+     * in the preferences. If the odometry is updated at another rate, e.g. once
+     * per loop in a replay, the window is scaled to cover the same time, so that
+     * the estimate lags by about as much. The estimates still differ, as they are
+     * made from fewer samples.
+     *
+     * @param updateRate The rate at which the odometry is updated, in Hz.
+     */
+    private static VelocityEstimator createVelocityEstimator(int updateRate) {
+        final int configuredRate = ODOMETRY_RATE.getValue();
+        final int window = configuredRate > 0
+            ? (int) Math.round((double) VELOCITY_WINDOW.getValue() * updateRate / configuredRate)
+            : VELOCITY_WINDOW.getValue();
+
+        return new VelocityEstimator(
+            VELOCITY_MEDIAN.getValue() ? VelocityEstimator.Filter.MEDIAN : VelocityEstimator.Filter.LEAST_SQUARES,
+            Math.max(2, window));
+    }
+
+    /**
+     * Creates the motor controllers for one side of the drive base.
+     * 
+     * @param leaderID    The CAN ID of the leader.
+     * @param followerIDs The CAN IDs of the followers.
+     * 
+     * @return The leader.
+     */
+    private static SpeedController createMotors(int leaderID, int... followerIDs) {
+        final WPI_VictorSPX leader = new WPI_VictorSPX(leaderID);
+
+        configureFrames(leader, true);
+
+        for (int followerID : followerIDs) {
+            final WPI_VictorSPX follower = new WPI_VictorSPX(followerID);
+
+            follower.follow(leader);
+            configureFrames(follower, false);
+        }
+
+        return leader;
+    }
+
+    /**
+     * Sets the status frame periods of a motor controller and registers its
+     * frames with the bus load estimate.
+     */
+    private static void configureFrames(WPI_VictorSPX controller, boolean isLeader) {
+        for (int i = 0; i < STATUS_FRAMES.length; i++) {
+            final int period = isLeader && STATUS_FRAMES[i] == StatusFrame.Status_1_General
+                    ? DEFAULT_STATUS_FRAME_PERIODS[i]
+                    : SLOW_STATUS_FRAME_PERIOD;
+
+            controller.setStatusFramePeriod(STATUS_FRAMES[i], period, 0);
+            CanBusLoad.addPeriodicFrame(DEFAULT_STATUS_FRAME_PERIODS[i], period);
+        }
+
+        CanBusLoad.addPeriodicFrame(CONTROL_FRAME_PERIOD, CONTROL_FRAME_PERIOD);
     }
 
     /**
@@ -62,32 +242,57 @@ public class DriveSubsystem extends SubsystemBase {
         // Create drive subsystem's tab.
         ShuffleboardTab driveTab = Shuffleboard.getTab("DriveSubsystem");
 
-        // Add the DifferentialDrive object and encoders to a list layout in the tab.
+        // Add the drive outputs and encoders to a list layout in the tab. These are
+        // published as numbers at a limited rate, rather than as sendables that are
+        // sent on every loop.
         ShuffleboardLayout driveBaseLayout = driveTab.getLayout("Base", BuiltInLayouts.kList).
             withPosition(0, 0).
             withSize(4, 5);
 
-        driveBaseLayout.add("Differential Drive", driveBase).withWidget(BuiltInWidgets.kDifferentialDrive);
-        driveBaseLayout.add("Left Encoder", leftEncoder).withWidget(BuiltInWidgets.kEncoder);
-        driveBaseLayout.add("Right Encoder", rightEncoder).withWidget(BuiltInWidgets.kEncoder);
+        DashboardPublisher.addNumber(driveBaseLayout, "Left Output", () -> leftMotor.get(), 10.0, 0.01);
+        DashboardPublisher.addNumber(driveBaseLayout, "Right Output", () -> rightMotor.get(), 10.0, 0.01);
+        DashboardPublisher.addNumber(driveBaseLayout, "Left Distance", () -> inputs.getLeftDistance(), 10.0, 0.01);
+        DashboardPublisher.addNumber(driveBaseLayout, "Right Distance", () -> inputs.getRightDistance(), 10.0, 0.01);
+        DashboardPublisher.addNumber(driveBaseLayout, "Left Rate", () -> inputs.getLeftRate(), 10.0, 0.05);
+        DashboardPublisher.addNumber(driveBaseLayout, "Right Rate", () -> inputs.getRightRate(), 10.0, 0.05);
+        DashboardPublisher.addNumber(driveBaseLayout, "Left Velocity", () -> inputs.getLeftVelocity(), 10.0, 0.05);
+        DashboardPublisher.addNumber(driveBaseLayout, "Right Velocity", () -> inputs.getRightVelocity(), 10.0, 0.05);
 
         // Add the odometry to a layout in the tab.
         ShuffleboardLayout positionLayout = driveTab.getLayout("Position", BuiltInLayouts.kList).
             withPosition(4, 0).
             withSize(2, 2);
 
-        positionLayout.addNumber("X", () -> getPosition().getTranslation().getX());
-        positionLayout.addNumber("Y", () -> getPosition().getTranslation().getY());
-        positionLayout.addNumber("Heading", () -> getHeading());
+        DashboardPublisher.addNumber(positionLayout, "X", () -> {
+            getPosition(dashboardPose);
+            return dashboardPose.getX();
+        }, 10.0, 0.01);
+        DashboardPublisher.addNumber(positionLayout, "Y", () -> {
+            getPosition(dashboardPose);
+            return dashboardPose.getY();
+        }, 10.0, 0.01);
+        DashboardPublisher.addNumber(positionLayout, "Heading", () -> getHeading(), 10.0, 0.5);
+
+        // Add the number of motor outputs that were skipped because they had not changed.
+        ShuffleboardLayout motorLayout = driveTab.getLayout("Motors", BuiltInLayouts.kList).
+            withPosition(4, 2).
+            withSize(2, 2);
+
+        DashboardPublisher.addNumber(motorLayout, "Writes",
+            () -> leftMotor.getWrites() + rightMotor.getWrites(), 1.0, 0.0);
+        DashboardPublisher.addNumber(motorLayout, "Skipped Writes",
+            () -> leftMotor.getSkippedWrites() + rightMotor.getSkippedWrites(), 1.0, 0.0);
 
         // Add test buttons to a layout in the tab
         ShuffleboardLayout testLayout = driveTab.getLayout("Test", BuiltInLayouts.kList).
             withPosition(6, 0).
             withSize(3, 2);
 
-        testLayout.add("Drive Straight Slow 3m", new DriveStraight(this).withSpeed(0.5).forMeters(3.0)).
+        testLayout.add("Drive Straight Slow 3m",
+            new TimedCommand(new DriveStraight(this).withSpeed(0.5).forMeters(3.0))).
             withWidget(BuiltInWidgets.kCommand);
-        testLayout.add("Drive Straight Fast 3m", new DriveStraight(this).withSpeed(1.0).forMeters(3.0)).
+        testLayout.add("Drive Straight Fast 3m",
+            new TimedCommand(new DriveStraight(this).withSpeed(1.0).forMeters(3.0))).
             withWidget(BuiltInWidgets.kCommand);
     }
 
@@ -95,37 +300,234 @@ public class DriveSubsystem extends SubsystemBase {
      * Called to periodically perform tasks. It is called once per scheduler run.
      */
     @Override
-    public void periodic() {
-        Rotation2d heading = Rotation2d.fromDegrees(getHeading());
+    protected void timedPeriodic() {
+        readInputs();
+
+        final TelemetryRecord record = TelemetryLog.getRecord();
+
+        pose.read(telemetryPose);
+        record.setDriveOutputs(leftMotor.get(), rightMotor.get());
+        record.setEncoders(inputs.getLeftDistance(), inputs.getRightDistance(), inputs.getLeftRate(),
+                inputs.getRightRate());
+        record.setGyro(inputs.getHeading(), inputs.getTurnRate());
+        record.setPose(telemetryPose.getX(), telemetryPose.getY(), telemetryPose.getRotation());
+    }
+
+    /**
+     * Reads each of the sensors once into the inputs for this loop. Without an
+     * odometry thread, the odometry is updated from the same values.
+     *
+     * <p>
+     * If the gyro samples are captured as they arrive, the heading and turn rate
+     * are those of the latest sample. Otherwise the gyro is polled, or, with an
+     * odometry thread, the heading is taken from the latest odometry update.
+     */
+    private void readInputs() {
+        final double leftDistance = leftEncoder.getDistance();
+        final double rightDistance = rightEncoder.getDistance();
+        final double heading;
+        final double turnRate;
+
+        if (headingCapture != null && headingCapture.read(inputsHeading)) {
+            heading = inputsHeading.getHeading();
+            turnRate = inputsHeading.getRate();
+        } else {
+            heading = odometryNotifier == null ? gyro.getAngle() : pose.getHeading();
+            turnRate = gyro.getRate();
+        }
+
+        if (odometryNotifier == null) {
+            synchronized (odometry) {
+                updateOdometry(heading, leftDistance, rightDistance);
+            }
+        }
+
+        inputs.setEncoders(leftDistance, rightDistance, leftEncoder.getRate(), rightEncoder.getRate());
+        inputs.setVelocities(leftVelocity.getVelocity(), rightVelocity.getVelocity());
+        inputs.setGyro(heading, turnRate);
+        inputs.setTimestamp(Timer.getFPGATimestamp());
+    }
+
+    /**
+     * Returns the latest heading for the odometry. The caller must hold the
+     * odometry lock.
+     */
+    private double readOdometryHeading() {
+        if (headingCapture != null && headingCapture.read(odometryHeading)) {
+            return odometryHeading.getHeading();
+        }
+
+        return gyro.getAngle();
+    }
+
+    /**
+     * Reads the sensors, integrates the odometry and publishes the new pose. This
+     * is called on the odometry thread.
+     */
+    private void updateOdometry() {
+        synchronized (odometry) {
+            updateOdometry(readOdometryHeading(), leftEncoder.getDistance(), rightEncoder.getDistance());
+        }
+    }
+
+    /**
+     * Integrates the odometry, updates the wheel velocities and publishes the new
+     * pose. The caller must hold the odometry lock.
+     */
+    private void updateOdometry(double heading, double leftDistance, double rightDistance) {
+        final double timestamp = Timer.getFPGATimestamp();
+        final Pose2d position = odometry.update(Rotation2d.fromDegrees(heading), leftDistance, rightDistance);
+
+        leftVelocity.add(timestamp, leftDistance);
+        rightVelocity.add(timestamp, rightDistance);
+
+        publishPose(position, heading, timestamp);
+    }
+
+    /**
+     * Publishes a new pose to the readers and the history. The caller must hold
+     * the odometry lock, so that there is only ever one writer.
+     */
+    private void publishPose(Pose2d position, double heading, double timestamp) {
+        final double x = position.getTranslation().getX();
+        final double y = position.getTranslation().getY();
+        final double rotation = position.getRotation().getRadians();
+
+        pose.write(timestamp, x, y, rotation, heading);
+        history.add(timestamp, x, y, rotation, heading);
+    }
+
+    /**
+     * Resets the encoders and sets the position of the robot on the field, e.g. to
+     * the start of a trajectory. This is safe to call while the odometry thread is
+     * running.
+     * 
+     * @param position The new position of the robot.
+     */
+    public void resetOdometry(Pose2d position) {
+        synchronized (odometry) {
+            // Resynchronize the captured heading with the gyro, which is read until
+            // the next sample arrives.
+            if (headingCapture != null) {
+                headingCapture.reset();
+            }
+
+            final double heading = readOdometryHeading();
+
+            leftEncoder.reset();
+            rightEncoder.reset();
+            leftVelocity.clear();
+            rightVelocity.clear();
+            odometry.resetPosition(position, Rotation2d.fromDegrees(heading));
+
+            publishPose(position, heading, Timer.getFPGATimestamp());
+        }
+    }
+
+    /**
+     * Resets the gyro, so that the current direction of the robot is a heading of
+     * zero, without changing its position on the field. The encoders are reset as
+     * by {@link #resetOdometry}. This is safe to call while the odometry thread is
+     * running.
+     */
+    public void resetHeading() {
+        synchronized (odometry) {
+            final Pose2d position = odometry.getPoseMeters();
+
+            gyro.reset();
+            resetOdometry(position);
+        }
+    }
 
-        odometry.update(heading, leftEncoder.getDistance(), rightEncoder.getDistance());
+    /**
+     * Returns the drive sensor values read at the start of the current loop.
+     * 
+     * @return The inputs. The same instance is updated on each loop.
+     */
+    public DriveInputs getInputs() {
+        return inputs;
     }
 
     /**
-     * Returns the total accumulated yaw (Z-axis) angle of the gyro.
+     * Returns the total accumulated yaw (Z-axis) angle of the gyro, as of the
+     * start of the current loop.
      * 
      * @return The robot heading in degrees.
      */
     public double getHeading() {
-        return navx.getAngle();
+        return inputs.getHeading();
     }
 
     /**
-     * Returns the position of the robot on the field.
+     * Returns the position of the robot on the field, as of the latest odometry
+     * update.
      *
      * @return The pose of the robot (x and y are in meters).
      */
     public Pose2d getPosition() {
-        return odometry.getPoseMeters();
+        PoseSnapshot snapshot = new PoseSnapshot();
+
+        pose.read(snapshot);
+
+        return new Pose2d(snapshot.getX(), snapshot.getY(), new Rotation2d(snapshot.getRotation()));
+    }
+
+    /**
+     * Reads the position of the robot on the field, as of the latest odometry
+     * update, into a snapshot. Unlike {@link #getPosition()}, this does not
+     * allocate.
+     * 
+     * @param snapshot The snapshot to fill in with the pose.
+     */
+    public void getPosition(PoseSnapshot snapshot) {
+        pose.read(snapshot);
+    }
+
+    /**
+     * Looks up the position of the robot at a time in the recent past, e.g. when a
+     * camera frame was captured. This does not allocate.
+     * 
+     * @param timestamp The FPGA time, in seconds.
+     * @param snapshot  The snapshot to fill in with the pose.
+     * 
+     * @return True if the time was within the pose history; otherwise the snapshot
+     *         holds the oldest or newest pose.
+     */
+    public boolean getPositionAt(double timestamp, PoseSnapshot snapshot) {
+        return history.getPoseAt(timestamp, snapshot);
     }
 
     /**
-     * Returns the rate of change of yaw (Z-axis) of the gyro.
+     * Returns the rate of change of yaw (Z-axis) of the gyro, as of the start of
+     * the current loop.
      * 
      * @return The rate of change of yaw in degress per second.
      */
     public double getTurnRate() {
-        return navx.getRate();
+        return inputs.getTurnRate();
+    }
+
+    /**
+     * Returns the estimated speeds of the wheels, as of the start of the current
+     * loop.
+     * 
+     * @return The wheel speeds, in meters per second.
+     */
+    public DifferentialDriveWheelSpeeds getWheelSpeeds() {
+        return new DifferentialDriveWheelSpeeds(inputs.getLeftVelocity(), inputs.getRightVelocity());
+    }
+
+    /**
+     * Drives the robot by setting the motor voltages directly, e.g. to follow a
+     * trajectory.
+     * 
+     * @param leftVolts  The left-side voltage.
+     * @param rightVolts The right-side voltage.
+     */
+    public void tankDriveVolts(double leftVolts, double rightVolts) {
+        leftMotor.setVoltage(leftVolts);
+        rightMotor.setVoltage(-rightVolts);
+        driveBase.feed();
     }
 
     /**
@@ -0,0 +1,45 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018-2019 FIRST. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.subsystems;
+
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.utilities.AllocationTracker;
+import frc.robot.utilities.LatencyHistogram;
+import frc.robot.utilities.LoopTiming;
+
+/**
+ * A base class for subsystems that records how long each call to
+ * {@link #periodic()} takes, and how many bytes it allocates. Subclasses put
+ * their periodic work in {@link #timedPeriodic()}.
+ */
+public abstract class TimedSubsystemBase extends SubsystemBase {
+
+    private final LatencyHistogram periodicTiming = LoopTiming.getHistogram(getName() + ".periodic");
+    private final AllocationTracker.Counter periodicAllocations = AllocationTracker.getCounter(getName() + ".periodic");
+
+    /**
+     * Called once per scheduler run. Times the call to {@link #timedPeriodic()}
+     * and counts its allocations.
+     */
+    @Override
+    public final void periodic() {
+        final long startBytes = AllocationTracker.getAllocatedBytes();
+        final long startTime = System.nanoTime();
+
+        timedPeriodic();
+
+        periodicTiming.record(System.nanoTime() - startTime);
+        periodicAllocations.record(startBytes);
+    }
+
+    /**
+     * Called to periodically perform tasks. It is called once per scheduler run.
+     */
+    protected void timedPeriodic() {
+    }
+}
@@ -7,16 +7,39 @@
 
 package frc.robot.subsystems;
 
+import java.io.IOException;
+import java.net.URI;
+
 import edu.wpi.cscore.HttpCamera;
 import edu.wpi.cscore.VideoSource;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.utilities.RobotPreferencesValue;
+import frc.robot.utilities.RobotPreferences.DoubleValue;
+import frc.robot.utilities.RobotPreferences.IntegerValue;
+import frc.robot.vision.ITargetDetector;
+import frc.robot.vision.MjpegIngest;
+import frc.robot.vision.VisionTargetReceiver;
+import frc.robot.vision.VisionTargets;
+
+public class VisionSubsystem extends TimedSubsystemBase {
+
+    @RobotPreferencesValue
+    public static DoubleValue PROCESSING_RATE = new DoubleValue("VisionSubsystem/ProcessingRateHz", 10.0);
+    @RobotPreferencesValue
+    public static IntegerValue TARGET_PORT = new IntegerValue("VisionSubsystem/TargetPort", 5800);
 
-public class VisionSubsystem extends SubsystemBase {
+    private static final String CAMERA_URL = "http://frcvision.local:1181/stream.mjpg";
+    private static final int MAX_FRAME_SIZE = 512 * 1024;
 
-    private VideoSource camera = new HttpCamera("Raspberry Pi", "http://frcvision.local:1181/stream.mjpg");
+    private VideoSource camera = new HttpCamera("Raspberry Pi", CAMERA_URL);
+
+    private MjpegIngest ingest;
+    private VisionTargetReceiver targetReceiver;
 
     /**
      * Creates a new VisionSubsystem.
@@ -32,10 +55,81 @@ public class VisionSubsystem extends SubsystemBase {
         ShuffleboardTab visionTab = Shuffleboard.getTab("Vision");
 
         visionTab.add("frcvision.local", camera).withWidget(BuiltInWidgets.kCameraStream).withSize(4, 3).withPosition(0, 0);
+
+        if (ingest != null) {
+            ShuffleboardLayout ingestLayout = visionTab.getLayout("Ingest", BuiltInLayouts.kList).
+                withPosition(4, 0).
+                withSize(2, 2);
+
+            ingestLayout.addNumber("Frames Received", () -> ingest.getFramesReceived());
+            ingestLayout.addNumber("Frames Processed", () -> ingest.getFramesProcessed());
+            ingestLayout.addNumber("Frames Dropped", () -> ingest.getFramesDropped());
+        }
+
+        if (targetReceiver != null) {
+            ShuffleboardLayout targetsLayout = visionTab.getLayout("Targets", BuiltInLayouts.kList).
+                withPosition(6, 0).
+                withSize(2, 3);
+
+            targetsLayout.addNumber("Sequence", () -> targetReceiver.getTargets().getSequence());
+            targetsLayout.addNumber("Count", () -> targetReceiver.getTargets().getCount());
+            targetsLayout.addNumber("Packets Received", () -> targetReceiver.getPacketsReceived());
+            targetsLayout.addNumber("Packets Dropped", () -> targetReceiver.getPacketsDropped());
+            targetsLayout.addNumber("Packets Out of Order", () -> targetReceiver.getPacketsOutOfOrder());
+            targetsLayout.addNumber("Packets Malformed", () -> targetReceiver.getPacketsMalformed());
+            targetsLayout.addNumber("Sender Resets", () -> targetReceiver.getSenderResets());
+        }
+    }
+
+    /**
+     * Starts pulling frames from the camera stream into the robot code, passing
+     * the latest frame to the detector at the rate stored in the preferences.
+     * This should be called before {@link #initShuffleboard()}.
+     * 
+     * @param detector The detector that finds targets in the frames.
+     */
+    public void startIngest(ITargetDetector detector) {
+        if (ingest != null) {
+            return;
+        }
+
+        ingest = new MjpegIngest(URI.create(CAMERA_URL), detector, PROCESSING_RATE.getValue(), MAX_FRAME_SIZE,
+                Timer::getFPGATimestamp);
+        ingest.start();
+    }
+
+    /**
+     * Starts listening for target packets from the coprocessor on the UDP port
+     * stored in the preferences. This should be called before
+     * {@link #initShuffleboard()}.
+     */
+    public void startTargetReceiver() {
+        if (targetReceiver != null) {
+            return;
+        }
+
+        try {
+            targetReceiver = new VisionTargetReceiver(TARGET_PORT.getValue(), Timer::getFPGATimestamp);
+            targetReceiver.start();
+        } catch (IOException e) {
+            System.out.println("VISION TARGET PORT " + TARGET_PORT.getValue() + " UNAVAILABLE: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the newest targets received from the coprocessor. They are updated
+     * once per scheduler run and must not be kept beyond it.
+     * 
+     * @return The targets, or null if the target receiver is not running.
+     */
+    public VisionTargets getTargets() {
+        return targetReceiver != null ? targetReceiver.getTargets() : null;
     }
 
     @Override
-    public void periodic() {
-        // This method will be called once per scheduler run
+    protected void timedPeriodic() {
+        if (targetReceiver != null) {
+            targetReceiver.update();
+        }
     }
 }
@@ -0,0 +1,126 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.telemetry;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts a telemetry log file to CSV, with one row per loop. This runs on the
+ * desktop, e.g. with "gradlew telemetryCsv -PtelemetryLog=path/to/log.bin".
+ * Events logged in a loop, such as overrun reports, are written as comment
+ * lines ("# ...") after the row of the loop.
+ */
+public final class TelemetryDecoder {
+
+    private static final String CSV_HEADER = "loop,timestamp,mode,leftOutput,rightOutput,leftDistance,"
+            + "rightDistance,leftRate,rightRate,heading,turnRate,x,y,rotation,leftStickY,rightStickY,xboxLeftY,"
+            + "xboxRightX,commands";
+
+    private TelemetryDecoder() {
+    }
+
+    /**
+     * Converts a log file to CSV.
+     *
+     * @param args The log file, and optionally the CSV file to write; by default
+     *             the log file name with a .csv extension.
+     *
+     * @throws IOException If the log cannot be read or the CSV cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: TelemetryDecoder <log file> [<csv file>]");
+            System.exit(1);
+        }
+
+        final Path log = Paths.get(args[0]);
+        final Path csv = args.length > 1 ? Paths.get(args[1])
+                : log.resolveSibling(log.getFileName().toString().replaceFirst("\\.bin$", "") + ".csv");
+
+        final int rows = decode(log, csv);
+
+        System.out.println("Wrote " + rows + " rows to " + csv);
+    }
+
+    /**
+     * Converts a log file to CSV.
+     *
+     * @param log The log file.
+     * @param csv The CSV file to write.
+     *
+     * @return The number of rows written.
+     *
+     * @throws IOException If the log cannot be read or the CSV cannot be written.
+     */
+    public static int decode(Path log, Path csv) throws IOException {
+        final TelemetryReader reader = new TelemetryReader(log);
+        final TelemetryRecord record = reader.getRecord();
+        int rows = 0;
+
+        try (PrintWriter writer = new PrintWriter(
+                new BufferedWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8)))) {
+            if (!reader.getMatchName().isEmpty()) {
+                writer.println("# " + reader.getMatchName());
+            }
+            writer.println(CSV_HEADER);
+
+            while (reader.next()) {
+                writer.print(reader.getLoop());
+                writer.print(',');
+                writer.print(reader.getTimestamp());
+                writer.print(',');
+                writer.print(record.getMode());
+
+                print(writer, record.getLeftOutput());
+                print(writer, record.getRightOutput());
+                print(writer, record.getLeftDistance());
+                print(writer, record.getRightDistance());
+                print(writer, record.getLeftRate());
+                print(writer, record.getRightRate());
+                print(writer, record.getHeading());
+                print(writer, record.getTurnRate());
+                print(writer, record.getX());
+                print(writer, record.getY());
+                print(writer, record.getRotation());
+                print(writer, record.getLeftStickY());
+                print(writer, record.getRightStickY());
+                print(writer, record.getXboxLeftY());
+                print(writer, record.getXboxRightX());
+
+                writer.print(',');
+
+                for (int i = 0; i < reader.getCommandCount(); i++) {
+                    if (i > 0) {
+                        writer.print('|');
+                    }
+                    writer.print(reader.getCommandName(i));
+                }
+
+                writer.println();
+                rows++;
+
+                for (int i = 0; i < reader.getEventCount(); i++) {
+                    writer.println("# " + reader.getEvent(i));
+                }
+            }
+        }
+
+        return rows;
+    }
+
+    private static void print(PrintWriter writer, double value) {
+        writer.print(',');
+        writer.print(value);
+    }
+}
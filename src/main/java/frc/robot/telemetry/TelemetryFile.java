@@ -0,0 +1,231 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.telemetry;
+
+import static frc.robot.telemetry.TelemetryFormat.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A preallocated, memory-mapped telemetry log file. Records are written into
+ * the mapping, so writing one is a memory copy; the operating system writes the
+ * pages to disk in the background, or when {@link #force()} is called.
+ *
+ * <p>
+ * Only one thread may write records. {@link #force()} may be called from any
+ * thread.
+ */
+final class TelemetryFile {
+
+    private static final int ZERO_BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int count;
+
+    private TelemetryFile(File file, MappedByteBuffer buffer, int capacity) {
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = capacity;
+
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(HEADER_VERSION, VERSION);
+        buffer.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+        buffer.putInt(HEADER_CAPACITY, capacity);
+        buffer.putLong(HEADER_CREATED, System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a new log file and maps it into memory. This writes the whole file,
+     * so it should not be called from the main robot thread.
+     *
+     * @param file     The file to create. It must not already exist.
+     * @param capacity The number of records the file can hold.
+     *
+     * @return The log file.
+     *
+     * @throws IOException If the file cannot be created.
+     */
+    static TelemetryFile create(File file, int capacity) throws IOException {
+        final long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Write the zeros out, rather than just setting the length, so that the disk
+            // blocks are allocated now instead of when the robot loop first touches a page.
+            final ByteBuffer zeros = ByteBuffer.allocateDirect(ZERO_BUFFER_SIZE);
+
+            for (long position = 0; position < size;) {
+                zeros.clear();
+                zeros.limit((int) Math.min(zeros.capacity(), size - position));
+                position += channel.write(zeros, position);
+            }
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+            buffer.load();
+
+            return new TelemetryFile(file, buffer, capacity);
+        }
+    }
+
+    /**
+     * Returns the file.
+     *
+     * @return The file.
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns true if the file cannot hold any more records.
+     *
+     * @return True if the file is full.
+     */
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    /**
+     * Records the name of the match in the header.
+     *
+     * @param name The match name. It is truncated to 32 characters.
+     */
+    void setMatchName(String name) {
+        final byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+
+        for (int i = 0; i < MATCH_NAME_SIZE; i++) {
+            buffer.put(HEADER_MATCH + i, i < bytes.length ? bytes[i] : 0);
+        }
+    }
+
+    /**
+     * Writes a command record.
+     *
+     * @param id   The command ID.
+     * @param name The UTF-8 encoded command name. It is truncated to 124 bytes.
+     *
+     * @return False if the file is full.
+     */
+    boolean writeCommand(int id, byte[] name) {
+        if (isFull()) {
+            return false;
+        }
+
+        final int offset = HEADER_SIZE + count * RECORD_SIZE;
+        final int length = Math.min(name.length, MAX_COMMAND_NAME);
+
+        buffer.put(offset + COMMAND_NAME_LENGTH, (byte) length);
+        buffer.putShort(offset + COMMAND_ID, (short) id);
+
+        for (int i = 0; i < length; i++) {
+            buffer.put(offset + COMMAND_NAME + i, name[i]);
+        }
+
+        // Write the type last, so a record cut short by a crash reads as the end.
+        buffer.put(offset, TYPE_COMMAND);
+        count++;
+
+        return true;
+    }
+
+    /**
+     * Writes an event record.
+     *
+     * @param text      The text of the event, in UTF-8.
+     * @param offset    The offset of the part of the text in this record.
+     * @param length    The length of the part, at most {@link TelemetryFormat#MAX_EVENT_TEXT}.
+     * @param continued True if the text continues in the next record.
+     *
+     * @return False if the file is full.
+     */
+    boolean writeEvent(byte[] text, int offset, int length, boolean continued) {
+        if (isFull()) {
+            return false;
+        }
+
+        final int recordOffset = HEADER_SIZE + count * RECORD_SIZE;
+
+        buffer.put(recordOffset + EVENT_TEXT_LENGTH, (byte) length);
+        buffer.put(recordOffset + EVENT_FLAGS, continued ? EVENT_CONTINUED : 0);
+
+        for (int i = 0; i < length; i++) {
+            buffer.put(recordOffset + EVENT_TEXT + i, text[offset + i]);
+        }
+
+        buffer.put(recordOffset, TYPE_EVENT);
+        count++;
+
+        return true;
+    }
+
+    /**
+     * Writes a sample record.
+     *
+     * @param loop         The loop count.
+     * @param timestamp    The FPGA time, in seconds.
+     * @param record       The telemetry of the loop.
+     * @param commands     The IDs of the active commands.
+     * @param commandCount The number of active commands.
+     *
+     * @return False if the file is full.
+     */
+    boolean writeSample(int loop, double timestamp, TelemetryRecord record, short[] commands, int commandCount) {
+        if (isFull()) {
+            return false;
+        }
+
+        final int offset = HEADER_SIZE + count * RECORD_SIZE;
+
+        buffer.put(offset + SAMPLE_COMMAND_COUNT, (byte) commandCount);
+        buffer.put(offset + SAMPLE_MODE, (byte) record.mode);
+        buffer.putInt(offset + SAMPLE_LOOP, loop);
+        buffer.putDouble(offset + SAMPLE_TIMESTAMP, timestamp);
+        buffer.putDouble(offset + SAMPLE_LEFT_OUTPUT, record.leftOutput);
+        buffer.putDouble(offset + SAMPLE_RIGHT_OUTPUT, record.rightOutput);
+        buffer.putDouble(offset + SAMPLE_LEFT_DISTANCE, record.leftDistance);
+        buffer.putDouble(offset + SAMPLE_RIGHT_DISTANCE, record.rightDistance);
+        buffer.putDouble(offset + SAMPLE_LEFT_RATE, record.leftRate);
+        buffer.putDouble(offset + SAMPLE_RIGHT_RATE, record.rightRate);
+        buffer.putDouble(offset + SAMPLE_HEADING, record.heading);
+        buffer.putDouble(offset + SAMPLE_TURN_RATE, record.turnRate);
+        buffer.putFloat(offset + SAMPLE_X, record.x);
+        buffer.putFloat(offset + SAMPLE_Y, record.y);
+        buffer.putFloat(offset + SAMPLE_ROTATION, record.rotation);
+        buffer.putFloat(offset + SAMPLE_LEFT_STICK_Y, record.leftStickY);
+        buffer.putFloat(offset + SAMPLE_RIGHT_STICK_Y, record.rightStickY);
+        buffer.putFloat(offset + SAMPLE_XBOX_LEFT_Y, record.xboxLeftY);
+        buffer.putFloat(offset + SAMPLE_XBOX_RIGHT_X, record.xboxRightX);
+
+        for (int i = 0; i < MAX_COMMANDS; i++) {
+            buffer.putShort(offset + SAMPLE_COMMANDS + 2 * i, i < commandCount ? commands[i] : 0);
+        }
+
+        // Write the type last, so a record cut short by a crash reads as the end.
+        buffer.put(offset, TYPE_SAMPLE);
+        count++;
+
+        return true;
+    }
+
+    /**
+     * Writes the changed pages of the file to disk, waiting until they have been
+     * written.
+     */
+    void force() {
+        buffer.force();
+    }
+}
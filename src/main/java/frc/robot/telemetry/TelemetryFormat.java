@@ -0,0 +1,116 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.telemetry;
+
+/**
+ * The binary layout of a telemetry log file. All fields are big-endian.
+ *
+ * <p>
+ * The file starts with a 64-byte header, followed by fixed-width records. The
+ * file is preallocated with zeros, so the first record with a type of zero
+ * marks the end of the log.
+ *
+ * <pre>
+ * Header
+ *   offset  size  field
+ *        0     8  magic ("FRCTLOG1")
+ *        8     4  version (2)
+ *       12     4  record size (128)
+ *       16     4  capacity, in records
+ *       24     8  time the file was created, in milliseconds since the epoch
+ *       32    32  match name (ASCII, zero-padded)
+ *
+ * Sample record (one per loop)
+ *   offset  size  field
+ *        0     1  type (1)
+ *        1     1  number of active commands (0 to 8)
+ *        2     1  robot mode (see TelemetryRecord)
+ *        4     4  loop count
+ *        8     8  FPGA time, in seconds
+ *       16    16  left and right drive outputs
+ *       32    16  left and right encoder distances, in meters
+ *       48    16  left and right encoder rates, in meters per second
+ *       64     8  gyro heading, in degrees
+ *       72     8  gyro rate, in degrees per second
+ *       80    12  odometry X and Y, in meters, and rotation, in radians (floats)
+ *       92    16  left and right joystick Y, Xbox left Y and right X (floats)
+ *      108    16  active command IDs, as 16-bit integers
+ *   Values are doubles unless noted.
+ *
+ * Command record (once per command per file, before its ID is used)
+ *   offset  size  field
+ *        0     1  type (2)
+ *        1     1  name length
+ *        2     2  command ID
+ *        4   124  command name (UTF-8, truncated)
+ *
+ * Event record (text, e.g. a loop overrun report, following the sample of the
+ * loop it happened in; longer text continues in the next event records)
+ *   offset  size  field
+ *        0     1  type (3)
+ *        1     1  text length
+ *        2     1  flags (1 if the text continues in the next record)
+ *        4   124  text (UTF-8)
+ * </pre>
+ */
+final class TelemetryFormat {
+
+    static final long MAGIC = 0x4652_4354_4C4F_4731L;
+    static final int VERSION = 2;
+
+    static final int HEADER_SIZE = 64;
+    static final int HEADER_VERSION = 8;
+    static final int HEADER_RECORD_SIZE = 12;
+    static final int HEADER_CAPACITY = 16;
+    static final int HEADER_CREATED = 24;
+    static final int HEADER_MATCH = 32;
+    static final int MATCH_NAME_SIZE = 32;
+
+    static final int RECORD_SIZE = 128;
+
+    static final byte TYPE_END = 0;
+    static final byte TYPE_SAMPLE = 1;
+    static final byte TYPE_COMMAND = 2;
+    static final byte TYPE_EVENT = 3;
+
+    static final int SAMPLE_COMMAND_COUNT = 1;
+    static final int SAMPLE_MODE = 2;
+    static final int SAMPLE_LOOP = 4;
+    static final int SAMPLE_TIMESTAMP = 8;
+    static final int SAMPLE_LEFT_OUTPUT = 16;
+    static final int SAMPLE_RIGHT_OUTPUT = 24;
+    static final int SAMPLE_LEFT_DISTANCE = 32;
+    static final int SAMPLE_RIGHT_DISTANCE = 40;
+    static final int SAMPLE_LEFT_RATE = 48;
+    static final int SAMPLE_RIGHT_RATE = 56;
+    static final int SAMPLE_HEADING = 64;
+    static final int SAMPLE_TURN_RATE = 72;
+    static final int SAMPLE_X = 80;
+    static final int SAMPLE_Y = 84;
+    static final int SAMPLE_ROTATION = 88;
+    static final int SAMPLE_LEFT_STICK_Y = 92;
+    static final int SAMPLE_RIGHT_STICK_Y = 96;
+    static final int SAMPLE_XBOX_LEFT_Y = 100;
+    static final int SAMPLE_XBOX_RIGHT_X = 104;
+    static final int SAMPLE_COMMANDS = 108;
+    static final int MAX_COMMANDS = 8;
+
+    static final int COMMAND_NAME_LENGTH = 1;
+    static final int COMMAND_ID = 2;
+    static final int COMMAND_NAME = 4;
+    static final int MAX_COMMAND_NAME = RECORD_SIZE - COMMAND_NAME;
+
+    static final int EVENT_TEXT_LENGTH = 1;
+    static final int EVENT_FLAGS = 2;
+    static final int EVENT_TEXT = 4;
+    static final int MAX_EVENT_TEXT = RECORD_SIZE - EVENT_TEXT;
+    static final byte EVENT_CONTINUED = 1;
+
+    private TelemetryFormat() {
+    }
+}
@@ -0,0 +1,344 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.telemetry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.utilities.ThreadPolicy;
+
+/**
+ * Records the telemetry of every pass of the main robot loop to a binary log
+ * file in the logs directory (/home/lvuser/logs on the robot).
+ *
+ * <p>
+ * The subsystems fill in the {@link TelemetryRecord} returned by
+ * {@link #getRecord()} as they run, and {@link #write(double)} appends it to
+ * the log at the end of the loop, along with the IDs of the commands the
+ * scheduler is running. The log files are preallocated and memory-mapped, so
+ * writing a record never touches the disk; a background thread creates the
+ * next file ahead of time and flushes the mapped pages once a second.
+ *
+ * <p>
+ * A new file is started for each match by {@link #roll()}, or when the current
+ * file fills up. The logs can be converted to CSV with {@link TelemetryDecoder}.
+ * Match logs (those started with the FMS attached, which have a match name)
+ * and practice logs are kept up to separate limits, so that the files written
+ * while the robot sits in the pits do not push out the matches.
+ *
+ * <p>
+ * Text events, such as loop overrun reports, can be added from any thread with
+ * {@link #logEvent(String)}; they are written after the sample of the loop in
+ * which they were added.
+ *
+ * <p>
+ * Except where noted, this class must only be used from the main robot thread.
+ */
+public final class TelemetryLog {
+
+    // Ten minutes of 20 ms loops, which covers a match and the time around it.
+    private static final int CAPACITY = 10 * 60 * 50;
+    private static final long FLUSH_PERIOD_NANOS = 1_000_000_000L;
+    private static final int MAX_MATCH_FILES = 20;
+    private static final int MAX_PRACTICE_FILES = 10;
+    private static final String FILE_PREFIX = "telemetry-";
+    private static final String FILE_SUFFIX = ".bin";
+
+    private static final TelemetryRecord record = new TelemetryRecord();
+    private static final Map<Command, Integer> commandIds = new IdentityHashMap<Command, Integer>();
+    private static final List<byte[]> commandNames = new ArrayList<byte[]>();
+    private static final short[] activeCommands = new short[TelemetryFormat.MAX_COMMANDS];
+    private static final ConcurrentLinkedQueue<TelemetryFile> retired = new ConcurrentLinkedQueue<TelemetryFile>();
+    private static final ConcurrentLinkedQueue<byte[]> events = new ConcurrentLinkedQueue<byte[]>();
+
+    private static File directory;
+    private static Thread flusher;
+    private static volatile TelemetryFile current;
+    private static volatile TelemetryFile spare;
+    private static int activeCount;
+    private static int loop;
+    private static long recordsDropped;
+
+    private TelemetryLog() {
+    }
+
+    /**
+     * Opens the first log file and starts recording. This should be called once,
+     * when the robot starts.
+     */
+    public static void start() {
+        if (current != null) {
+            return;
+        }
+
+        directory = new File(Filesystem.getOperatingDirectory(), "logs");
+
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("cannot create " + directory);
+            }
+
+            current = TelemetryFile.create(nextFile(), CAPACITY);
+        } catch (IOException e) {
+            System.out.println("TELEMETRY LOG DISABLED: " + e.getMessage());
+            return;
+        }
+
+        final CommandScheduler scheduler = CommandScheduler.getInstance();
+
+        scheduler.onCommandInitialize(command -> addActiveCommand(getCommandId(command)));
+        scheduler.onCommandFinish(command -> removeActiveCommand(getCommandId(command)));
+        scheduler.onCommandInterrupt(command -> removeActiveCommand(getCommandId(command)));
+
+        flusher = new Thread(ThreadPolicy.background("Telemetry Flusher", TelemetryLog::flush), "Telemetry Flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        System.out.println("TELEMETRY LOG: " + current.getFile());
+    }
+
+    /**
+     * Returns the record for the current loop, for the subsystems to fill in.
+     *
+     * @return The record.
+     */
+    public static TelemetryRecord getRecord() {
+        return record;
+    }
+
+    /**
+     * Appends the record for the current loop to the log. This should be called
+     * once per loop, after the scheduler has run.
+     *
+     * @param timestamp The FPGA time, in seconds.
+     */
+    public static void write(double timestamp) {
+        final TelemetryFile file = current;
+
+        if (file == null) {
+            return;
+        }
+
+        loop++;
+
+        if (!file.writeSample(loop, timestamp, record, activeCommands, activeCount)) {
+            if (!roll() || !current.writeSample(loop, timestamp, record, activeCommands, activeCount)) {
+                recordsDropped++;
+            }
+        }
+
+        if (!events.isEmpty()) {
+            writeEvents();
+        }
+    }
+
+    /**
+     * Adds a text event to the log. It is written after the sample of the current
+     * loop. This may be called from any thread, but allocates, so it should not be
+     * called on every loop.
+     *
+     * @param text The text of the event.
+     */
+    public static void logEvent(String text) {
+        if (current != null) {
+            events.add(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Writes the pending events, splitting long text across records.
+     */
+    private static void writeEvents() {
+        byte[] text;
+
+        while ((text = events.poll()) != null) {
+            int offset = 0;
+
+            do {
+                final int length = Math.min(text.length - offset, TelemetryFormat.MAX_EVENT_TEXT);
+                final boolean continued = offset + length < text.length;
+
+                if (!current.writeEvent(text, offset, length, continued)) {
+                    recordsDropped++;
+                    break;
+                }
+                offset += length;
+            } while (offset < text.length);
+        }
+    }
+
+    /**
+     * Starts a new log file, e.g. at the start of a match. The file has already
+     * been created by the flusher thread, so this does not touch the disk.
+     *
+     * @return False if the next file is not ready; the current file is kept.
+     */
+    public static boolean roll() {
+        final TelemetryFile next = spare;
+
+        if (next == null) {
+            return false;
+        }
+
+        spare = null;
+
+        final DriverStation ds = DriverStation.getInstance();
+
+        if (ds.isFMSAttached()) {
+            next.setMatchName(ds.getEventName() + " " + ds.getMatchType() + " " + ds.getMatchNumber());
+        }
+
+        // Each file must be readable on its own, so repeat the command names.
+        for (int id = 0; id < commandNames.size(); id++) {
+            next.writeCommand(id, commandNames.get(id));
+        }
+
+        retired.add(current);
+        current = next;
+        LockSupport.unpark(flusher);
+
+        System.out.println("TELEMETRY LOG: " + next.getFile() + " (" + recordsDropped + " RECORDS DROPPED)");
+
+        return true;
+    }
+
+    /**
+     * Returns the ID of a command, assigning one and logging its name the first
+     * time the command is seen.
+     */
+    private static int getCommandId(Command command) {
+        Integer id = commandIds.get(command);
+
+        if (id == null) {
+            final byte[] name = command.getName().getBytes(StandardCharsets.UTF_8);
+
+            id = commandNames.size();
+            commandIds.put(command, id);
+            commandNames.add(name);
+            current.writeCommand(id, name);
+        }
+
+        return id;
+    }
+
+    private static void addActiveCommand(int id) {
+        if (activeCount < activeCommands.length) {
+            activeCommands[activeCount++] = (short) id;
+        }
+    }
+
+    private static void removeActiveCommand(int id) {
+        for (int i = 0; i < activeCount; i++) {
+            if (activeCommands[i] == id) {
+                System.arraycopy(activeCommands, i + 1, activeCommands, i, activeCount - i - 1);
+                activeCount--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns a new, unique log file name.
+     */
+    private static File nextFile() {
+        final String time = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+
+        return new File(directory, FILE_PREFIX + time + FILE_SUFFIX);
+    }
+
+    /**
+     * Deletes the oldest log files, keeping the most recent match and practice
+     * logs.
+     */
+    private static void deleteOldFiles() {
+        final File[] files = directory
+                .listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+
+        if (files == null || files.length <= Math.min(MAX_MATCH_FILES, MAX_PRACTICE_FILES)) {
+            return;
+        }
+
+        // The names sort by creation time.
+        Arrays.sort(files);
+
+        int matchFiles = 0;
+        int practiceFiles = 0;
+
+        for (int i = files.length - 1; i >= 0; i--) {
+            if (isMatchLog(files[i])) {
+                if (++matchFiles > MAX_MATCH_FILES) {
+                    files[i].delete();
+                }
+            } else if (++practiceFiles > MAX_PRACTICE_FILES) {
+                files[i].delete();
+            }
+        }
+    }
+
+    /**
+     * Returns true if a log file has a match name. Files that cannot be read are
+     * treated as practice logs.
+     */
+    private static boolean isMatchLog(File file) {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            input.seek(TelemetryFormat.HEADER_MATCH);
+
+            return input.read() > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The body of the flusher thread. It flushes the current and retired files,
+     * and makes sure the next file is ready.
+     */
+    private static void flush() {
+        boolean reportedError = false;
+
+        while (true) {
+            LockSupport.parkNanos(FLUSH_PERIOD_NANOS);
+
+            TelemetryFile file;
+
+            while ((file = retired.poll()) != null) {
+                file.force();
+            }
+
+            current.force();
+
+            if (spare == null) {
+                try {
+                    spare = TelemetryFile.create(nextFile(), CAPACITY);
+                    deleteOldFiles();
+                    reportedError = false;
+                } catch (IOException e) {
+                    if (!reportedError) {
+                        System.out.println("TELEMETRY LOG CANNOT CREATE NEXT FILE: " + e.getMessage());
+                        reportedError = true;
+                    }
+                }
+            }
+        }
+    }
+}
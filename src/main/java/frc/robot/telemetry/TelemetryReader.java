@@ -0,0 +1,234 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.telemetry;
+
+import static frc.robot.telemetry.TelemetryFormat.*;
+
+import java.io.IOException;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the sample records of a telemetry log file in order. This is used on
+ * the desktop, to decode and replay logs copied from the robot.
+ */
+public class TelemetryReader {
+
+    private final ByteBuffer buffer;
+    private final int recordSize;
+    private final String matchName;
+    private final Map<Integer, String> commandNames = new HashMap<Integer, String>();
+    private final TelemetryRecord record = new TelemetryRecord();
+    private final short[] commands = new short[MAX_COMMANDS];
+    private final List<String> events = new ArrayList<String>();
+    private final ByteArrayOutputStream eventText = new ByteArrayOutputStream();
+    private int offset = HEADER_SIZE;
+    private int commandCount;
+    private int loop;
+    private double timestamp;
+
+    /**
+     * Opens a log file.
+     *
+     * @param log The log file.
+     *
+     * @throws IOException If the file cannot be read or is not a telemetry log.
+     */
+    public TelemetryReader(Path log) throws IOException {
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < HEADER_SIZE || buffer.getLong(0) != MAGIC) {
+            throw new IOException(log + " is not a telemetry log");
+        }
+        if (buffer.getInt(HEADER_VERSION) != VERSION) {
+            throw new IOException(log + " has unsupported version " + buffer.getInt(HEADER_VERSION));
+        }
+
+        recordSize = buffer.getInt(HEADER_RECORD_SIZE);
+
+        final StringBuilder name = new StringBuilder();
+
+        for (int i = 0; i < MATCH_NAME_SIZE && buffer.get(HEADER_MATCH + i) != 0; i++) {
+            name.append((char) buffer.get(HEADER_MATCH + i));
+        }
+        matchName = name.toString();
+    }
+
+    /**
+     * Returns the name of the match recorded in the log.
+     *
+     * @return The match name, or an empty string if the robot was not on the
+     *         field.
+     */
+    public String getMatchName() {
+        return matchName;
+    }
+
+    /**
+     * Advances to the next sample record.
+     *
+     * @return False if there are no more samples.
+     */
+    public boolean next() {
+        for (; offset + recordSize <= buffer.limit(); offset += recordSize) {
+            final byte type = buffer.get(offset);
+
+            if (type == TYPE_END) {
+                break;
+            }
+
+            if (type == TYPE_COMMAND) {
+                readCommand(offset);
+            } else if (type == TYPE_SAMPLE) {
+                readSample(offset);
+                offset += recordSize;
+                readEvents();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the loop count of the current sample.
+     *
+     * @return The loop count.
+     */
+    public int getLoop() {
+        return loop;
+    }
+
+    /**
+     * Returns the time of the current sample.
+     *
+     * @return The FPGA time, in seconds.
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the telemetry of the current sample. It is reused for each sample.
+     *
+     * @return The telemetry.
+     */
+    public TelemetryRecord getRecord() {
+        return record;
+    }
+
+    /**
+     * Returns the number of commands that were running in the current sample.
+     *
+     * @return The number of commands.
+     */
+    public int getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * Returns the name of a command that was running in the current sample.
+     *
+     * @param index The index of the command, less than
+     *              {@link #getCommandCount()}.
+     *
+     * @return The command name.
+     */
+    public String getCommandName(int index) {
+        final int id = commands[index];
+
+        return commandNames.getOrDefault(id, "#" + id);
+    }
+
+    /**
+     * Returns the number of events logged in the loop of the current sample.
+     *
+     * @return The number of events.
+     */
+    public int getEventCount() {
+        return events.size();
+    }
+
+    /**
+     * Returns the text of an event logged in the loop of the current sample.
+     *
+     * @param index The index of the event, less than {@link #getEventCount()}.
+     *
+     * @return The text of the event.
+     */
+    public String getEvent(int index) {
+        return events.get(index);
+    }
+
+    /**
+     * Reads the event records that follow the current sample.
+     */
+    private void readEvents() {
+        events.clear();
+
+        for (; offset + recordSize <= buffer.limit() && buffer.get(offset) == TYPE_EVENT; offset += recordSize) {
+            final int length = buffer.get(offset + EVENT_TEXT_LENGTH) & 0xFF;
+
+            for (int i = 0; i < length; i++) {
+                eventText.write(buffer.get(offset + EVENT_TEXT + i));
+            }
+
+            if ((buffer.get(offset + EVENT_FLAGS) & EVENT_CONTINUED) == 0) {
+                events.add(new String(eventText.toByteArray(), StandardCharsets.UTF_8));
+                eventText.reset();
+            }
+        }
+    }
+
+    private void readCommand(int offset) {
+        final byte[] name = new byte[buffer.get(offset + COMMAND_NAME_LENGTH) & 0xFF];
+
+        for (int i = 0; i < name.length; i++) {
+            name[i] = buffer.get(offset + COMMAND_NAME + i);
+        }
+
+        commandNames.put((int) buffer.getShort(offset + COMMAND_ID), new String(name, StandardCharsets.UTF_8));
+    }
+
+    private void readSample(int offset) {
+        loop = buffer.getInt(offset + SAMPLE_LOOP);
+        timestamp = buffer.getDouble(offset + SAMPLE_TIMESTAMP);
+        commandCount = Math.min(buffer.get(offset + SAMPLE_COMMAND_COUNT), MAX_COMMANDS);
+
+        for (int i = 0; i < commandCount; i++) {
+            commands[i] = buffer.getShort(offset + SAMPLE_COMMANDS + 2 * i);
+        }
+
+        record.mode = buffer.get(offset + SAMPLE_MODE);
+        record.leftOutput = buffer.getDouble(offset + SAMPLE_LEFT_OUTPUT);
+        record.rightOutput = buffer.getDouble(offset + SAMPLE_RIGHT_OUTPUT);
+        record.leftDistance = buffer.getDouble(offset + SAMPLE_LEFT_DISTANCE);
+        record.rightDistance = buffer.getDouble(offset + SAMPLE_RIGHT_DISTANCE);
+        record.leftRate = buffer.getDouble(offset + SAMPLE_LEFT_RATE);
+        record.rightRate = buffer.getDouble(offset + SAMPLE_RIGHT_RATE);
+        record.heading = buffer.getDouble(offset + SAMPLE_HEADING);
+        record.turnRate = buffer.getDouble(offset + SAMPLE_TURN_RATE);
+        record.x = buffer.getFloat(offset + SAMPLE_X);
+        record.y = buffer.getFloat(offset + SAMPLE_Y);
+        record.rotation = buffer.getFloat(offset + SAMPLE_ROTATION);
+        record.leftStickY = buffer.getFloat(offset + SAMPLE_LEFT_STICK_Y);
+        record.rightStickY = buffer.getFloat(offset + SAMPLE_RIGHT_STICK_Y);
+        record.xboxLeftY = buffer.getFloat(offset + SAMPLE_XBOX_LEFT_Y);
+        record.xboxRightX = buffer.getFloat(offset + SAMPLE_XBOX_RIGHT_X);
+    }
+}
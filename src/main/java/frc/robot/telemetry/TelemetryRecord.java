@@ -0,0 +1,196 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.telemetry;
+
+/**
+ * The telemetry of one pass of the main robot loop. The subsystems fill it in
+ * as they run, and it is written to the log at the end of the loop.
+ *
+ * <p>
+ * The values that feed the control loops (the operator inputs, sensors and
+ * outputs) are kept at full precision so that a match can be replayed exactly.
+ */
+public class TelemetryRecord {
+
+    public static final int MODE_DISABLED = 0;
+    public static final int MODE_TELEOP = 1;
+    public static final int MODE_AUTONOMOUS = 2;
+    public static final int MODE_TEST = 3;
+
+    int mode;
+    double leftOutput;
+    double rightOutput;
+    double leftDistance;
+    double rightDistance;
+    double leftRate;
+    double rightRate;
+    double heading;
+    double turnRate;
+    float x;
+    float y;
+    float rotation;
+    float leftStickY;
+    float rightStickY;
+    float xboxLeftY;
+    float xboxRightX;
+
+    /**
+     * Sets the robot mode.
+     * 
+     * @param mode One of the MODE_ constants.
+     */
+    public void setMode(int mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Sets the operator inputs used to drive the robot.
+     * 
+     * @param leftStickY  The Y axis of the left joystick.
+     * @param rightStickY The Y axis of the right joystick.
+     * @param xboxLeftY   The Y axis of the left stick of the Xbox controller.
+     * @param xboxRightX  The X axis of the right stick of the Xbox controller.
+     */
+    public void setOperatorInputs(double leftStickY, double rightStickY, double xboxLeftY, double xboxRightX) {
+        // The driver station sends the axes as floats, so nothing is lost here.
+        this.leftStickY = (float) leftStickY;
+        this.rightStickY = (float) rightStickY;
+        this.xboxLeftY = (float) xboxLeftY;
+        this.xboxRightX = (float) xboxRightX;
+    }
+
+    /**
+     * Sets the drive motor outputs.
+     * 
+     * @param left  The left-side output, from -1.0 to 1.0.
+     * @param right The right-side output, from -1.0 to 1.0.
+     */
+    public void setDriveOutputs(double left, double right) {
+        leftOutput = left;
+        rightOutput = right;
+    }
+
+    /**
+     * Sets the drive encoder readings.
+     * 
+     * @param leftDistance  The left-side distance, in meters.
+     * @param rightDistance The right-side distance, in meters.
+     * @param leftRate      The left-side rate, in meters per second.
+     * @param rightRate     The right-side rate, in meters per second.
+     */
+    public void setEncoders(double leftDistance, double rightDistance, double leftRate, double rightRate) {
+        this.leftDistance = leftDistance;
+        this.rightDistance = rightDistance;
+        this.leftRate = leftRate;
+        this.rightRate = rightRate;
+    }
+
+    /**
+     * Sets the gyro readings.
+     * 
+     * @param heading  The total accumulated yaw angle, in degrees.
+     * @param turnRate The rate of change of yaw, in degrees per second.
+     */
+    public void setGyro(double heading, double turnRate) {
+        this.heading = heading;
+        this.turnRate = turnRate;
+    }
+
+    /**
+     * Sets the odometry pose.
+     * 
+     * @param x        The X position, in meters.
+     * @param y        The Y position, in meters.
+     * @param rotation The rotation of the robot on the field, in radians.
+     */
+    public void setPose(double x, double y, double rotation) {
+        this.x = (float) x;
+        this.y = (float) y;
+        this.rotation = (float) rotation;
+    }
+
+    /** @return The robot mode, one of the MODE_ constants. */
+    public int getMode() {
+        return mode;
+    }
+
+    /** @return The Y axis of the left joystick. */
+    public double getLeftStickY() {
+        return leftStickY;
+    }
+
+    /** @return The Y axis of the right joystick. */
+    public double getRightStickY() {
+        return rightStickY;
+    }
+
+    /** @return The Y axis of the left stick of the Xbox controller. */
+    public double getXboxLeftY() {
+        return xboxLeftY;
+    }
+
+    /** @return The X axis of the right stick of the Xbox controller. */
+    public double getXboxRightX() {
+        return xboxRightX;
+    }
+
+    /** @return The left-side drive output. */
+    public double getLeftOutput() {
+        return leftOutput;
+    }
+
+    /** @return The right-side drive output. */
+    public double getRightOutput() {
+        return rightOutput;
+    }
+
+    /** @return The left-side encoder distance, in meters. */
+    public double getLeftDistance() {
+        return leftDistance;
+    }
+
+    /** @return The right-side encoder distance, in meters. */
+    public double getRightDistance() {
+        return rightDistance;
+    }
+
+    /** @return The left-side encoder rate, in meters per second. */
+    public double getLeftRate() {
+        return leftRate;
+    }
+
+    /** @return The right-side encoder rate, in meters per second. */
+    public double getRightRate() {
+        return rightRate;
+    }
+
+    /** @return The gyro heading, in degrees. */
+    public double getHeading() {
+        return heading;
+    }
+
+    /** @return The gyro rate, in degrees per second. */
+    public double getTurnRate() {
+        return turnRate;
+    }
+
+    /** @return The odometry X position, in meters. */
+    public double getX() {
+        return x;
+    }
+
+    /** @return The odometry Y position, in meters. */
+    public double getY() {
+        return y;
+    }
+
+    /** @return The odometry rotation, in radians. */
+    public double getRotation() {
+        return rotation;
+    }
+}
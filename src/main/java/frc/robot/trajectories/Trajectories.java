@@ -0,0 +1,39 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.trajectories;
+
+import java.util.List;
+
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.geometry.Translation2d;
+import frc.robot.Constants;
+
+/**
+ * The trajectories used by the autonomous routines. Every trajectory listed in
+ * {@link #ALL} is generated at build time into the {@link TrajectoryCache}.
+ */
+public final class Trajectories {
+
+    /**
+     * An S-shaped path that ends 3 meters in front of the starting position.
+     */
+    public static final TrajectoryDefinition S_CURVE = new TrajectoryDefinition("S-Curve",
+        new Pose2d(0.0, 0.0, new Rotation2d(0.0)),
+        List.of(new Translation2d(1.0, 1.0), new Translation2d(2.0, -1.0)),
+        new Pose2d(3.0, 0.0, new Rotation2d(0.0)),
+        Constants.kMaxSpeedMetersPerSecond, Constants.kMaxAccelerationMetersPerSecondSquared, false);
+
+    /**
+     * The trajectories to generate into the cache.
+     */
+    public static final List<TrajectoryDefinition> ALL = List.of(S_CURVE);
+
+    private Trajectories() {
+    }
+}
@@ -0,0 +1,236 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.trajectories;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+
+/**
+ * Loads trajectories that were generated at build time from trajectories.bin
+ * in the deploy directory.
+ *
+ * <p>
+ * The file is memory-mapped the first time a trajectory is requested, and each
+ * trajectory's states are only read when that trajectory is first requested.
+ * If a trajectory is missing from the file, or its definition has changed since
+ * the file was generated, it is generated on the spot instead (slowly).
+ *
+ * <pre>
+ * File layout (big-endian)
+ *   offset  size  field
+ *        0     8  magic ("FRCTRAJ1")
+ *        8     4  version (1)
+ *       12     4  number of trajectories
+ *       16    64  per trajectory: name (40 bytes, UTF-8, zero-padded),
+ *                 definition hash (8), offset of the states (4), number of
+ *                 states (4), reserved (8)
+ *        ...      per state: time, velocity, acceleration, x, y, rotation
+ *                 (radians) and curvature, as doubles
+ * </pre>
+ */
+public final class TrajectoryCache {
+
+    public static final String FILE_NAME = "trajectories.bin";
+
+    private static final long MAGIC = 0x4652_4354_5241_4A31L;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 64;
+    private static final int NAME_SIZE = 40;
+    private static final int INDEX_HASH = 40;
+    private static final int INDEX_OFFSET = 48;
+    private static final int INDEX_COUNT = 52;
+    private static final int STATE_SIZE = 7 * Double.BYTES;
+
+    private static final Map<String, Trajectory> trajectories = new HashMap<String, Trajectory>();
+
+    private static ByteBuffer buffer;
+    private static boolean opened;
+
+    private TrajectoryCache() {
+    }
+
+    /**
+     * Returns a trajectory, loading it from the cache (or generating it) the
+     * first time it is requested. This is thread-safe.
+     *
+     * @param definition The definition of the trajectory.
+     *
+     * @return The trajectory.
+     */
+    public static synchronized Trajectory get(TrajectoryDefinition definition) {
+        Trajectory trajectory = trajectories.get(definition.getName());
+
+        if (trajectory == null) {
+            trajectory = load(definition);
+
+            if (trajectory == null) {
+                System.out.println("TRAJECTORY " + definition.getName() + " NOT IN CACHE OR OUT OF DATE; GENERATING");
+                trajectory = definition.generate();
+            }
+
+            trajectories.put(definition.getName(), trajectory);
+        }
+
+        return trajectory;
+    }
+
+    /**
+     * Reads a trajectory from the mapped file.
+     *
+     * @return The trajectory, or null if it is not in the file or is out of date.
+     */
+    private static Trajectory load(TrajectoryDefinition definition) {
+        if (!opened) {
+            opened = true;
+            buffer = open(new File(Filesystem.getDeployDirectory(), FILE_NAME).toPath());
+        }
+
+        if (buffer == null) {
+            return null;
+        }
+
+        final byte[] name = encodeName(definition.getName());
+        final int count = buffer.getInt(12);
+
+        for (int i = 0, entry = HEADER_SIZE; i < count; i++, entry += INDEX_ENTRY_SIZE) {
+            if (!nameEquals(entry, name)) {
+                continue;
+            }
+            if (buffer.getLong(entry + INDEX_HASH) != definition.getHash()) {
+                return null;
+            }
+
+            final int offset = buffer.getInt(entry + INDEX_OFFSET);
+            final int stateCount = buffer.getInt(entry + INDEX_COUNT);
+            final List<Trajectory.State> states = new ArrayList<Trajectory.State>(stateCount);
+
+            for (int s = 0, position = offset; s < stateCount; s++, position += STATE_SIZE) {
+                states.add(new Trajectory.State(buffer.getDouble(position),
+                    buffer.getDouble(position + 8),
+                    buffer.getDouble(position + 16),
+                    new Pose2d(buffer.getDouble(position + 24), buffer.getDouble(position + 32),
+                        new Rotation2d(buffer.getDouble(position + 40))),
+                    buffer.getDouble(position + 48)));
+            }
+
+            return new Trajectory(states);
+        }
+
+        return null;
+    }
+
+    /**
+     * Maps the cache file.
+     *
+     * @return The mapped file, or null if it is missing or invalid.
+     */
+    private static ByteBuffer open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (mapped.limit() < HEADER_SIZE || mapped.getLong(0) != MAGIC || mapped.getInt(8) != VERSION) {
+                System.out.println("TRAJECTORY CACHE " + file + " IS INVALID");
+                return null;
+            }
+
+            return mapped;
+        } catch (IOException e) {
+            System.out.println("TRAJECTORY CACHE UNAVAILABLE: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Generates trajectories and writes them to a cache file.
+     *
+     * @param file        The file to write.
+     * @param definitions The definitions of the trajectories.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path file, List<TrajectoryDefinition> definitions) throws IOException {
+        final List<Trajectory> generated = new ArrayList<Trajectory>();
+        int size = HEADER_SIZE + definitions.size() * INDEX_ENTRY_SIZE;
+
+        for (TrajectoryDefinition definition : definitions) {
+            final Trajectory trajectory = definition.generate();
+
+            generated.add(trajectory);
+            size += trajectory.getStates().size() * STATE_SIZE;
+        }
+
+        final ByteBuffer output = ByteBuffer.allocate(size);
+        int offset = HEADER_SIZE + definitions.size() * INDEX_ENTRY_SIZE;
+
+        output.putLong(0, MAGIC);
+        output.putInt(8, VERSION);
+        output.putInt(12, definitions.size());
+
+        for (int i = 0; i < definitions.size(); i++) {
+            final int entry = HEADER_SIZE + i * INDEX_ENTRY_SIZE;
+            final byte[] name = encodeName(definitions.get(i).getName());
+            final List<Trajectory.State> states = generated.get(i).getStates();
+
+            for (int b = 0; b < name.length; b++) {
+                output.put(entry + b, name[b]);
+            }
+            output.putLong(entry + INDEX_HASH, definitions.get(i).getHash());
+            output.putInt(entry + INDEX_OFFSET, offset);
+            output.putInt(entry + INDEX_COUNT, states.size());
+
+            for (Trajectory.State state : states) {
+                output.putDouble(offset, state.timeSeconds);
+                output.putDouble(offset + 8, state.velocityMetersPerSecond);
+                output.putDouble(offset + 16, state.accelerationMetersPerSecondSq);
+                output.putDouble(offset + 24, state.poseMeters.getX());
+                output.putDouble(offset + 32, state.poseMeters.getY());
+                output.putDouble(offset + 40, state.poseMeters.getRotation().getRadians());
+                output.putDouble(offset + 48, state.curvatureRadPerMeter);
+                offset += STATE_SIZE;
+            }
+        }
+
+        Files.write(file, output.array());
+    }
+
+    private static byte[] encodeName(String name) {
+        final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+
+        if (bytes.length > NAME_SIZE) {
+            throw new IllegalArgumentException("trajectory name is too long: " + name);
+        }
+
+        return bytes;
+    }
+
+    private static boolean nameEquals(int entry, byte[] name) {
+        for (int i = 0; i < NAME_SIZE; i++) {
+            if (buffer.get(entry + i) != (i < name.length ? name[i] : 0)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
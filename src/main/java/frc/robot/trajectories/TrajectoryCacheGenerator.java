@@ -0,0 +1,46 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.trajectories;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Generates the trajectory cache at build time. This is run by the
+ * generateTrajectories Gradle task, which writes the cache to src/main/deploy so
+ * that it is deployed with the robot code.
+ */
+public final class TrajectoryCacheGenerator {
+
+    private TrajectoryCacheGenerator() {
+    }
+
+    /**
+     * Generates the trajectories listed in {@link Trajectories#ALL}.
+     *
+     * @param args The directory to write the cache file to.
+     *
+     * @throws IOException If the cache file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: TrajectoryCacheGenerator <deploy directory>");
+            System.exit(1);
+        }
+
+        final Path directory = Paths.get(args[0]);
+        final Path file = directory.resolve(TrajectoryCache.FILE_NAME);
+
+        Files.createDirectories(directory);
+        TrajectoryCache.write(file, Trajectories.ALL);
+
+        System.out.println("Wrote " + Trajectories.ALL.size() + " trajectories to " + file);
+    }
+}
@@ -0,0 +1,148 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.trajectories;
+
+import java.util.List;
+
+import edu.wpi.first.wpilibj.controller.SimpleMotorFeedforward;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Translation2d;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryConfig;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryGenerator;
+import edu.wpi.first.wpilibj.trajectory.constraint.DifferentialDriveVoltageConstraint;
+import frc.robot.Constants;
+
+/**
+ * The waypoints and constraints from which a trajectory is generated.
+ *
+ * <p>
+ * Each definition has a hash of everything that affects the generated
+ * trajectory, so that a stale copy in the {@link TrajectoryCache} can be
+ * detected.
+ */
+public class TrajectoryDefinition {
+
+    private final String name;
+    private final Pose2d start;
+    private final List<Translation2d> interiorWaypoints;
+    private final Pose2d end;
+    private final double maxVelocity;
+    private final double maxAcceleration;
+    private final boolean reversed;
+    private final long hash;
+
+    /**
+     * Constructs an instance of this class.
+     *
+     * @param name              The unique name of the trajectory.
+     * @param start             The starting pose.
+     * @param interiorWaypoints The points the trajectory passes through.
+     * @param end               The ending pose.
+     * @param maxVelocity       The maximum velocity, in meters per second.
+     * @param maxAcceleration   The maximum acceleration, in meters per second
+     *                          squared.
+     * @param reversed          If true, the robot drives backwards.
+     */
+    public TrajectoryDefinition(String name, Pose2d start, List<Translation2d> interiorWaypoints, Pose2d end,
+            double maxVelocity, double maxAcceleration, boolean reversed) {
+        this.name = name;
+        this.start = start;
+        this.interiorWaypoints = List.copyOf(interiorWaypoints);
+        this.end = end;
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.reversed = reversed;
+        this.hash = computeHash();
+    }
+
+    /**
+     * Returns the name of the trajectory.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the hash of the waypoints and constraints.
+     *
+     * @return The hash.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Generates the trajectory. This is slow on the roboRIO; use
+     * {@link TrajectoryCache#get(TrajectoryDefinition)} instead.
+     *
+     * @return The trajectory.
+     */
+    public Trajectory generate() {
+        final TrajectoryConfig config = new TrajectoryConfig(maxVelocity, maxAcceleration).
+            setKinematics(Constants.kDriveKinematics).
+            addConstraint(new DifferentialDriveVoltageConstraint(
+                new SimpleMotorFeedforward(Constants.ksVolts, Constants.kvVoltSecondsPerMeter,
+                    Constants.kaVoltSecondsSquaredPerMeter),
+                Constants.kDriveKinematics, Constants.kMaxTrajectoryVoltage)).
+            setReversed(reversed);
+
+        return TrajectoryGenerator.generateTrajectory(start, interiorWaypoints, end, config);
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of everything that affects the generated
+     * trajectory, including the robot constants used by {@link #generate()}.
+     */
+    private long computeHash() {
+        long h = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < name.length(); i++) {
+            h = mix(h, name.charAt(i));
+        }
+
+        h = mix(h, start);
+        for (Translation2d waypoint : interiorWaypoints) {
+            h = mix(h, waypoint.getX());
+            h = mix(h, waypoint.getY());
+        }
+        h = mix(h, end);
+        h = mix(h, maxVelocity);
+        h = mix(h, maxAcceleration);
+        h = mix(h, reversed ? 1 : 0);
+        h = mix(h, Constants.kTrackwidthMeters);
+        h = mix(h, Constants.ksVolts);
+        h = mix(h, Constants.kvVoltSecondsPerMeter);
+        h = mix(h, Constants.kaVoltSecondsSquaredPerMeter);
+        h = mix(h, Constants.kMaxTrajectoryVoltage);
+
+        return h;
+    }
+
+    private static long mix(long h, Pose2d pose) {
+        h = mix(h, pose.getX());
+        h = mix(h, pose.getY());
+        return mix(h, pose.getRotation().getRadians());
+    }
+
+    private static long mix(long h, double value) {
+        final long bits = Double.doubleToLongBits(value);
+
+        for (int shift = 0; shift < 64; shift += 8) {
+            h = mix(h, (bits >>> shift) & 0xFF);
+        }
+
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        return (h ^ value) * 0x100000001b3L;
+    }
+}
@@ -0,0 +1,167 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.trajectories;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import frc.robot.Constants;
+import frc.robot.utilities.ThreadPolicy;
+
+/**
+ * Generates trajectories that depend on the robot's position at runtime, such
+ * as a path back to the start, on a low-priority background thread.
+ *
+ * <p>
+ * Requests return a future that completes when the trajectory has been
+ * generated, so the robot loop never waits for the generator. Recent requests
+ * are kept in a small least-recently-used cache keyed by the start and goal,
+ * rounded to 5 cm and 2 degrees; a request close enough to a recent one reuses
+ * its trajectory (the follower corrects the small difference in the start).
+ */
+public final class TrajectoryService {
+
+    /**
+     * A start and goal, rounded so that nearby requests share a trajectory.
+     */
+    private static final class Key {
+        final int startX, startY, startHeading;
+        final int goalX, goalY, goalHeading;
+        final boolean reversed;
+
+        Key(Pose2d start, Pose2d goal, boolean reversed) {
+            this.startX = roundPosition(start.getX());
+            this.startY = roundPosition(start.getY());
+            this.startHeading = roundHeading(start);
+            this.goalX = roundPosition(goal.getX());
+            this.goalY = roundPosition(goal.getY());
+            this.goalHeading = roundHeading(goal);
+            this.reversed = reversed;
+        }
+
+        private static int roundPosition(double meters) {
+            return (int) Math.round(meters / POSITION_RESOLUTION);
+        }
+
+        private static int roundHeading(Pose2d pose) {
+            return (int) Math.round(pose.getRotation().getDegrees() / HEADING_RESOLUTION);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+
+            final Key key = (Key) other;
+
+            return startX == key.startX && startY == key.startY && startHeading == key.startHeading
+                    && goalX == key.goalX && goalY == key.goalY && goalHeading == key.goalHeading
+                    && reversed == key.reversed;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = startX;
+
+            h = 31 * h + startY;
+            h = 31 * h + startHeading;
+            h = 31 * h + goalX;
+            h = 31 * h + goalY;
+            h = 31 * h + goalHeading;
+
+            return 31 * h + (reversed ? 1 : 0);
+        }
+    }
+
+    private static final double POSITION_RESOLUTION = 0.05;
+    private static final double HEADING_RESOLUTION = 2.0;
+    private static final int CACHE_SIZE = 16;
+
+    private static final Map<Key, CompletableFuture<Trajectory>> cache =
+        new LinkedHashMap<Key, CompletableFuture<Trajectory>>(CACHE_SIZE, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<Trajectory>> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+    private static ExecutorService executor;
+
+    private TrajectoryService() {
+    }
+
+    /**
+     * Requests a trajectory from a start to a goal with no interior waypoints.
+     * The robot drives backwards if the goal is behind it.
+     *
+     * @param start The starting pose, normally the robot's current position.
+     * @param goal  The ending pose.
+     *
+     * @return A future that completes with the trajectory. It completes
+     *         exceptionally if the trajectory cannot be generated.
+     */
+    public static CompletableFuture<Trajectory> getTrajectory(Pose2d start, Pose2d goal) {
+        final double dx = goal.getX() - start.getX();
+        final double dy = goal.getY() - start.getY();
+        final boolean reversed = dx * start.getRotation().getCos() + dy * start.getRotation().getSin() < 0.0;
+
+        return getTrajectory(start, goal, reversed);
+    }
+
+    /**
+     * Requests a trajectory from a start to a goal with no interior waypoints.
+     *
+     * @param start    The starting pose, normally the robot's current position.
+     * @param goal     The ending pose.
+     * @param reversed If true, the robot drives backwards.
+     *
+     * @return A future that completes with the trajectory. It completes
+     *         exceptionally if the trajectory cannot be generated.
+     */
+    public static synchronized CompletableFuture<Trajectory> getTrajectory(Pose2d start, Pose2d goal,
+            boolean reversed) {
+        final Key key = new Key(start, goal, reversed);
+        CompletableFuture<Trajectory> future = cache.get(key);
+
+        if (future == null || future.isCompletedExceptionally()) {
+            final TrajectoryDefinition definition = new TrajectoryDefinition("Dynamic", start, List.of(), goal,
+                Constants.kMaxSpeedMetersPerSecond, Constants.kMaxAccelerationMetersPerSecondSquared, reversed);
+
+            future = CompletableFuture.supplyAsync(definition::generate, getExecutor());
+            cache.put(key, future);
+        }
+
+        return future;
+    }
+
+    private static ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(ThreadPolicy.background("Trajectory Generator", runnable),
+                        "Trajectory Generator");
+
+                // Never compete with the robot loop or the odometry thread.
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        }
+
+        return executor;
+    }
+}
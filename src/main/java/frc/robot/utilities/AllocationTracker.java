@@ -0,0 +1,256 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.management.ThreadMXBean;
+
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
+
+/**
+ * Counts the bytes allocated by each subsystem periodic() and command execute()
+ * run by the scheduler, and publishes the average per run to the "Allocations"
+ * tab of the Shuffleboard.
+ *
+ * <p>
+ * The counts come from the JVM's per-thread allocation counter. If the JVM does
+ * not provide it (the roboRIO's runtime may be built without the
+ * jdk.management module), nothing is counted and {@link #isSupported()} returns
+ * false.
+ *
+ * <p>
+ * This class is not synchronized; it must only be used from the main robot
+ * thread.
+ */
+public final class AllocationTracker {
+
+    /**
+     * Counts the bytes allocated by one named piece of code.
+     */
+    public static final class Counter {
+        private final String name;
+        private long bytes;
+        private long runs;
+        private double bytesPerRun;
+        private double maxBytesPerRun;
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name of the counter.
+         *
+         * @return The name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Records one run of the code.
+         *
+         * @param startBytes The value of {@link AllocationTracker#getAllocatedBytes()}
+         *                   before the code ran.
+         */
+        public void record(long startBytes) {
+            totalBytes += measure(startBytes);
+        }
+
+        /**
+         * Returns the average number of bytes allocated per run over the last
+         * summary period.
+         *
+         * @return The number of bytes.
+         */
+        public double getBytesPerRun() {
+            return bytesPerRun;
+        }
+
+        long measure(long startBytes) {
+            final long allocated = Math.max(0, getAllocatedBytes() - startBytes - overhead);
+
+            bytes += allocated;
+            runs++;
+
+            return allocated;
+        }
+
+        void update() {
+            bytesPerRun = runs > 0 ? (double) bytes / runs : 0.0;
+            maxBytesPerRun = Math.max(maxBytesPerRun, bytesPerRun);
+            bytes = 0;
+            runs = 0;
+        }
+    }
+
+    private static final int LOOPS_PER_SUMMARY = 50;
+    private static final double PUBLISH_RATE = 1.0;
+
+    private static final ThreadMXBean threadBean = getThreadBean();
+    private static final Map<String, Counter> counters = new HashMap<String, Counter>();
+    private static final List<Counter> summaries = new ArrayList<Counter>();
+
+    // The bytes allocated by reading the counter itself, which older JDKs do.
+    private static final long overhead = measureOverhead();
+
+    private static final Counter loopCounter = getCounter("CommandScheduler.run");
+
+    private static ShuffleboardTab allocationsTab;
+    private static long totalBytes;
+    private static int loopsSinceSummary;
+
+    private AllocationTracker() {
+    }
+
+    /**
+     * Returns true if the JVM counts the bytes allocated by each thread.
+     *
+     * @return True if allocations are counted.
+     */
+    public static boolean isSupported() {
+        return threadBean != null;
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread.
+     *
+     * @return The number of bytes, or 0 if allocations are not counted.
+     */
+    public static long getAllocatedBytes() {
+        return threadBean != null ? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * Returns the counter with the specified name, creating it if needed.
+     * Counters should be created when the owning subsystem or command is
+     * constructed, not in the loop.
+     *
+     * @param name The name of the counter.
+     *
+     * @return The counter.
+     */
+    public static Counter getCounter(String name) {
+        Counter counter = counters.get(name);
+
+        if (counter == null) {
+            counter = new Counter(name);
+            counters.put(name, counter);
+            summaries.add(counter);
+            addToShuffleboard(counter);
+        }
+
+        return counter;
+    }
+
+    /**
+     * Records the bytes allocated by one run of the command scheduler, and updates
+     * the averages periodically.
+     *
+     * @param startBytes The value of {@link #getAllocatedBytes()} before the
+     *                   scheduler ran.
+     */
+    public static void recordLoop(long startBytes) {
+        // The scheduler's count includes the subsystems and commands it ran, so it
+        // is not added to the total.
+        loopCounter.measure(startBytes);
+
+        if (++loopsSinceSummary >= LOOPS_PER_SUMMARY) {
+            loopsSinceSummary = 0;
+
+            for (int i = 0; i < summaries.size(); i++) {
+                summaries.get(i).update();
+            }
+        }
+    }
+
+    /**
+     * Returns the total number of bytes allocated by the subsystems and commands,
+     * not counting the scheduler itself.
+     *
+     * @return The number of bytes.
+     */
+    public static long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the counters, in the order they were created.
+     *
+     * @return The counters.
+     */
+    public static List<Counter> getCounters() {
+        return summaries;
+    }
+
+    /**
+     * Add the allocations tab to the Shuffleboard.
+     */
+    public static void initShuffleboard() {
+        if (allocationsTab != null) {
+            return;
+        }
+
+        allocationsTab = Shuffleboard.getTab("Allocations");
+        allocationsTab.addBoolean("Supported", () -> threadBean != null).withPosition(0, 0);
+
+        summaries.forEach(AllocationTracker::addToShuffleboard);
+    }
+
+    private static void addToShuffleboard(Counter counter) {
+        if (allocationsTab == null) {
+            return;
+        }
+
+        ShuffleboardLayout layout = allocationsTab.getLayout(counter.name, BuiltInLayouts.kList).withSize(2, 2);
+
+        DashboardPublisher.addNumber(layout, "Bytes/Run", () -> counter.bytesPerRun, PUBLISH_RATE, 0.0);
+        DashboardPublisher.addNumber(layout, "Max Bytes/Run", () -> counter.maxBytesPerRun, PUBLISH_RATE, 0.0);
+    }
+
+    private static ThreadMXBean getThreadBean() {
+        try {
+            final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+            if (bean instanceof ThreadMXBean) {
+                final ThreadMXBean threadBean = (ThreadMXBean) bean;
+
+                if (threadBean.isThreadAllocatedMemorySupported()) {
+                    threadBean.setThreadAllocatedMemoryEnabled(true);
+                    return threadBean;
+                }
+            }
+        } catch (LinkageError | UnsupportedOperationException e) {
+            // Fall through.
+        }
+
+        System.out.println("PER-THREAD ALLOCATION COUNTING IS NOT SUPPORTED");
+
+        return null;
+    }
+
+    private static long measureOverhead() {
+        long minimum = Long.MAX_VALUE;
+
+        for (int i = 0; i < 100; i++) {
+            final long startBytes = getAllocatedBytes();
+
+            minimum = Math.min(minimum, getAllocatedBytes() - startBytes);
+        }
+
+        return minimum;
+    }
+}
@@ -0,0 +1,93 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
+
+/**
+ * Estimates the CAN bus utilization from the periodic frames the devices on the
+ * bus are configured to send.
+ *
+ * <p>
+ * The roboRIO measures the bus utilization, but not in simulation, so the
+ * devices register their frame periods here, along with the default periods,
+ * and the estimate is shown next to the measurement on the "Timing" tab. This
+ * makes it possible to check the effect of tuning the frame periods in the
+ * desktop simulation.
+ */
+public final class CanBusLoad {
+
+    // The worst case length of an extended (29-bit ID) frame with 8 data bytes,
+    // including stuffing bits and the inter-frame space.
+    private static final int FRAME_BITS = 160;
+    private static final double BUS_BIT_RATE = 1.0e6;
+
+    private static double framesPerSecond;
+    private static double defaultFramesPerSecond;
+
+    private CanBusLoad() {
+    }
+
+    /**
+     * Registers a periodic frame sent on the bus.
+     * 
+     * @param defaultPeriod The default period of the frame, in milliseconds.
+     * @param period        The configured period of the frame, in milliseconds.
+     */
+    public static synchronized void addPeriodicFrame(int defaultPeriod, int period) {
+        defaultFramesPerSecond += 1000.0 / defaultPeriod;
+        framesPerSecond += 1000.0 / period;
+    }
+
+    /**
+     * Returns the estimated bus utilization with the configured frame periods.
+     * 
+     * @return The utilization, in percent.
+     */
+    public static synchronized double getEstimatedUtilization() {
+        return 100.0 * framesPerSecond * FRAME_BITS / BUS_BIT_RATE;
+    }
+
+    /**
+     * Returns the estimated bus utilization with the default frame periods.
+     * 
+     * @return The utilization, in percent.
+     */
+    public static synchronized double getDefaultUtilization() {
+        return 100.0 * defaultFramesPerSecond * FRAME_BITS / BUS_BIT_RATE;
+    }
+
+    /**
+     * Returns the bus utilization measured by the roboRIO.
+     * 
+     * @return The utilization, in percent, or zero in simulation.
+     */
+    public static double getMeasuredUtilization() {
+        if (RobotBase.isSimulation()) {
+            return 0.0;
+        }
+
+        return 100.0 * RobotController.getCANStatus().percentBusUtilization;
+    }
+
+    /**
+     * Add the bus utilization to the "Timing" tab of the Shuffleboard.
+     */
+    public static void initShuffleboard() {
+        ShuffleboardLayout layout = Shuffleboard.getTab("Timing").getLayout("CAN", BuiltInLayouts.kList).
+            withSize(2, 2);
+
+        DashboardPublisher.addNumber(layout, "Estimated %", CanBusLoad::getEstimatedUtilization, 1.0, 0.1);
+        DashboardPublisher.addNumber(layout, "Default %", CanBusLoad::getDefaultUtilization, 1.0, 0.1);
+        DashboardPublisher.addNumber(layout, "Measured %", CanBusLoad::getMeasuredUtilization, 1.0, 0.1);
+    }
+}
@@ -0,0 +1,209 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardContainer;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
+import edu.wpi.first.wpilibj.shuffleboard.SimpleWidget;
+
+/**
+ * Publishes numbers to the Shuffleboard at a limited rate, and only when they
+ * have changed by more than a deadband.
+ *
+ * <p>
+ * Values added with {@link ShuffleboardContainer#addNumber} are read and sent
+ * to NetworkTables on every loop. Values added here are read at their own rate,
+ * and are only sent if they have moved by more than their deadband since they
+ * were last sent. The updates are pushed out with a single NetworkTables flush
+ * per publishing period.
+ *
+ * <p>
+ * The number of updates (and the approximate number of bytes) saved compared
+ * to sending every value on every loop are shown on the "Timing" tab.
+ * NetworkTables does not send a value that has not changed, so only changed
+ * values held back by the rate or the deadband are counted as saved. A value
+ * that has changed when it is read is assumed to have changed on each of the
+ * loops skipped since it was last read.
+ *
+ * <p>
+ * This class is not synchronized; it must only be used from the main robot
+ * thread.
+ */
+public final class DashboardPublisher {
+
+    /**
+     * A published number.
+     */
+    private static class Entry {
+        final NetworkTableEntry entry;
+        final DoubleSupplier supplier;
+        final double period;
+        final double deadband;
+        final boolean counted;
+        double nextTime;
+        double lastValue;
+        double lastReading;
+        int skippedLoops;
+        boolean published;
+
+        Entry(NetworkTableEntry entry, DoubleSupplier supplier, double period, double deadband, boolean counted) {
+            this.entry = entry;
+            this.supplier = supplier;
+            this.period = period;
+            this.deadband = deadband;
+            this.counted = counted;
+        }
+    }
+
+    // The size of a NetworkTables 3 entry update carrying a double.
+    private static final int UPDATE_SIZE = 14;
+    private static final double FLUSH_PERIOD = 0.1;
+    private static final double STATISTICS_PERIOD = 1.0;
+
+    private static final List<Entry> entries = new ArrayList<Entry>();
+
+    private static double nextFlushTime;
+    private static boolean flushPending;
+    private static double nextStatisticsTime;
+    private static long updatesHeldBack;
+    private static double updatesSavedPerSecond;
+    private static double bytesSavedPerSecond;
+
+    private DashboardPublisher() {
+    }
+
+    /**
+     * Adds a number to a Shuffleboard tab or layout.
+     *
+     * @param container The tab or layout.
+     * @param title     The title of the widget.
+     * @param supplier  Supplies the value of the number.
+     * @param rate      The rate at which the value is read, in Hz. Values faster
+     *                  than the loop rate are read on every loop.
+     * @param deadband  The value is only sent when it differs from the last value
+     *                  sent by more than this.
+     *
+     * @return The widget, so its position and size can be set.
+     */
+    public static SimpleWidget addNumber(ShuffleboardContainer container, String title, DoubleSupplier supplier,
+            double rate, double deadband) {
+        return addNumber(container, title, supplier, rate, deadband, true);
+    }
+
+    private static SimpleWidget addNumber(ShuffleboardContainer container, String title, DoubleSupplier supplier,
+            double rate, double deadband, boolean counted) {
+        final SimpleWidget widget = container.add(title, 0.0);
+
+        entries.add(new Entry(widget.getEntry(), supplier, 1.0 / rate, deadband, counted));
+
+        return widget;
+    }
+
+    /**
+     * Reads the numbers that are due and sends the ones that have changed. This
+     * should be called once per loop.
+     */
+    public static void update() {
+        final double now = Timer.getFPGATimestamp();
+
+        for (int i = 0; i < entries.size(); i++) {
+            final Entry entry = entries.get(i);
+
+            if (now < entry.nextTime) {
+                entry.skippedLoops++;
+                continue;
+            }
+
+            entry.nextTime = now + entry.period;
+
+            final double value = entry.supplier.getAsDouble();
+
+            if (entry.counted && entry.published && value != entry.lastReading) {
+                updatesHeldBack += entry.skippedLoops;
+            }
+            entry.skippedLoops = 0;
+            entry.lastReading = value;
+
+            if (entry.published && Math.abs(value - entry.lastValue) <= entry.deadband) {
+                if (entry.counted && value != entry.lastValue) {
+                    updatesHeldBack++;
+                }
+                continue;
+            }
+
+            entry.entry.setDouble(value);
+            entry.lastValue = value;
+            entry.published = true;
+            flushPending = true;
+        }
+
+        if (flushPending && now >= nextFlushTime) {
+            NetworkTableInstance.getDefault().flush();
+            nextFlushTime = now + FLUSH_PERIOD;
+            flushPending = false;
+        }
+
+        if (now >= nextStatisticsTime) {
+            updateStatistics(now);
+        }
+    }
+
+    /**
+     * Returns the number of updates saved per second, compared to sending every
+     * number on every loop: the changed values held back by the rate or the
+     * deadband.
+     *
+     * @return The number of updates.
+     */
+    public static double getUpdatesSavedPerSecond() {
+        return updatesSavedPerSecond;
+    }
+
+    /**
+     * Returns the approximate number of bytes saved per second, compared to
+     * sending every number on every loop.
+     *
+     * @return The number of bytes.
+     */
+    public static double getBytesSavedPerSecond() {
+        return bytesSavedPerSecond;
+    }
+
+    /**
+     * Add the publisher statistics to the "Timing" tab of the Shuffleboard.
+     */
+    public static void initShuffleboard() {
+        ShuffleboardLayout layout = Shuffleboard.getTab("Timing").getLayout("Dashboard", BuiltInLayouts.kList).
+            withSize(2, 2);
+
+        // The statistics are not counted in themselves.
+        addNumber(layout, "Updates Saved/s", () -> updatesSavedPerSecond, 1.0, 0.0, false);
+        addNumber(layout, "Bytes Saved/s", () -> bytesSavedPerSecond, 1.0, 0.0, false);
+    }
+
+    private static void updateStatistics(double now) {
+        final double elapsed = now - (nextStatisticsTime - STATISTICS_PERIOD);
+
+        if (nextStatisticsTime > 0.0) {
+            updatesSavedPerSecond = updatesHeldBack / elapsed;
+            bytesSavedPerSecond = updatesSavedPerSecond * UPDATE_SIZE;
+        }
+
+        updatesHeldBack = 0;
+        nextStatisticsTime = now + STATISTICS_PERIOD;
+    }
+}
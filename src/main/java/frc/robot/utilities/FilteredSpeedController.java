@@ -0,0 +1,105 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.SpeedController;
+
+/**
+ * Wraps a speed controller to skip setting outputs that are within an epsilon
+ * of the last output set.
+ *
+ * <p>
+ * CTRE motor controllers resend their last output on their own control frame
+ * period, so a skipped write leaves the motor running at the previous output
+ * rather than letting it time out. Stopping or disabling the motor is always
+ * passed through.
+ */
+public class FilteredSpeedController implements SpeedController {
+
+    private final SpeedController controller;
+    private final double epsilon;
+    private double lastSpeed;
+    private boolean written;
+    private long writes;
+    private long skippedWrites;
+
+    /**
+     * Constructs an instance of this class.
+     * 
+     * @param controller The speed controller to wrap.
+     * @param epsilon    Outputs within this of the last output are not set.
+     */
+    public FilteredSpeedController(SpeedController controller, double epsilon) {
+        this.controller = controller;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public void set(double speed) {
+        if (written && Math.abs(speed - lastSpeed) <= epsilon) {
+            skippedWrites++;
+            return;
+        }
+
+        controller.set(speed);
+        lastSpeed = speed;
+        written = true;
+        writes++;
+    }
+
+    @Override
+    public double get() {
+        return controller.get();
+    }
+
+    @Override
+    public void setInverted(boolean isInverted) {
+        controller.setInverted(isInverted);
+    }
+
+    @Override
+    public boolean getInverted() {
+        return controller.getInverted();
+    }
+
+    @Override
+    public void disable() {
+        controller.disable();
+        written = false;
+    }
+
+    @Override
+    public void stopMotor() {
+        controller.stopMotor();
+        written = false;
+    }
+
+    @Override
+    public void pidWrite(double output) {
+        set(output);
+    }
+
+    /**
+     * Returns the number of outputs passed to the speed controller.
+     * 
+     * @return The number of outputs.
+     */
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * Returns the number of outputs skipped because they were within the epsilon
+     * of the last output.
+     * 
+     * @return The number of outputs.
+     */
+    public long getSkippedWrites() {
+        return skippedWrites;
+    }
+}
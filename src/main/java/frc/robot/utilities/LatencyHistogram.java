@@ -0,0 +1,143 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018-2019 FIRST. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-bucket histogram of latencies.
+ *
+ * <p>
+ * Latencies below 32 microseconds each have their own bucket. Above that, each
+ * power of two is split into 32 buckets, so a bucket is never more than about 3%
+ * wide. All of the storage is allocated up front, so recording a latency does
+ * not allocate. The histogram is not synchronized and must only be used from one
+ * thread (normally the main robot thread).
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int OCTAVES = 16;
+    private static final int BUCKETS = SUB_BUCKETS * (OCTAVES + 1);
+
+    private final String name;
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long maxMicros;
+
+    /**
+     * Constructs an instance of this class.
+     *
+     * @param name The name of the histogram.
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the histogram.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency, in nanoseconds.
+     */
+    public void record(long nanos) {
+        final long micros = Math.max(0L, nanos / 1000L);
+
+        counts[bucketOf(micros)]++;
+        count++;
+
+        if (micros > maxMicros) {
+            maxMicros = micros;
+        }
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return The number of latencies.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the latency below which the specified fraction of the recorded
+     * latencies fall, rounded up to the bucket boundary.
+     *
+     * @param fraction The fraction, e.g. 0.99 for the 99th percentile.
+     *
+     * @return The latency, in milliseconds.
+     */
+    public double getPercentile(double fraction) {
+        if (count == 0) {
+            return 0.0;
+        }
+
+        final long target = Math.max(1L, (long) Math.ceil(fraction * count));
+        long seen = 0;
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+
+            if (seen >= target) {
+                return Math.min(upperBoundOf(bucket), maxMicros) / 1000.0;
+            }
+        }
+
+        return getMax();
+    }
+
+    /**
+     * Returns the largest latency recorded.
+     *
+     * @return The latency, in milliseconds.
+     */
+    public double getMax() {
+        return maxMicros / 1000.0;
+    }
+
+    /**
+     * Clears all of the recorded latencies.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        count = 0;
+        maxMicros = 0;
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+
+        final int octave = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        final int subBucket = (int) (micros >>> octave) & (SUB_BUCKETS - 1);
+
+        return Math.min(SUB_BUCKETS + octave * SUB_BUCKETS + subBucket, BUCKETS - 1);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket + 1;
+        }
+
+        final int octave = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        final int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+
+        return (long) (SUB_BUCKETS + subBucket + 1) << octave;
+    }
+}
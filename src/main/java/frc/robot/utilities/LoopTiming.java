@@ -0,0 +1,174 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018-2019 FIRST. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
+
+/**
+ * Collects the latency histograms of the main robot loop, and publishes them to
+ * the "Timing" tab of the Shuffleboard.
+ *
+ * <p>
+ * Besides the histograms of the subsystems and commands, the whole loop, the
+ * command scheduler and the dashboard updates are timed. The dashboard updates
+ * are {@link DashboardPublisher#update()} and the SmartDashboard, LiveWindow
+ * and Shuffleboard updates that WPILib runs after robotPeriodic(), which call
+ * the dashboard suppliers. A loop is counted as an overrun if the whole loop
+ * took longer than the loop period.
+ *
+ * <p>
+ * This class is not synchronized; it must only be used from the main robot
+ * thread.
+ */
+public final class LoopTiming {
+
+    /**
+     * The summary of a histogram that is shown on the Shuffleboard. It is updated
+     * at a low rate, so that the Shuffleboard suppliers do not have to walk the
+     * histogram buckets on every loop.
+     */
+    private static class Summary {
+        final LatencyHistogram histogram;
+        double p50;
+        double p99;
+        double max;
+
+        Summary(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        void update() {
+            p50 = histogram.getPercentile(0.50);
+            p99 = histogram.getPercentile(0.99);
+            max = histogram.getMax();
+        }
+    }
+
+    private static final long LOOP_BUDGET_NANOS = (long) (TimedRobot.kDefaultPeriod * 1.0e9);
+    private static final int LOOPS_PER_SUMMARY = 25;
+
+    private static final Map<String, LatencyHistogram> histograms = new HashMap<String, LatencyHistogram>();
+    private static final List<Summary> summaries = new ArrayList<Summary>();
+    private static final LatencyHistogram loopHistogram = getHistogram("Robot.loop");
+    private static final LatencyHistogram schedulerHistogram = getHistogram("CommandScheduler.run");
+    private static final LatencyHistogram dashboardHistogram = getHistogram("Dashboard.update");
+
+    private static ShuffleboardTab timingTab;
+    private static long overruns;
+    private static int loopsSinceSummary;
+
+    private LoopTiming() {
+    }
+
+    /**
+     * Returns the histogram with the specified name, creating it if needed.
+     * Histograms should be created when the owning subsystem or command is
+     * constructed, not in the loop.
+     *
+     * @param name The name of the histogram.
+     *
+     * @return The histogram.
+     */
+    public static LatencyHistogram getHistogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+
+        if (histogram == null) {
+            histogram = new LatencyHistogram(name);
+            histograms.put(name, histogram);
+
+            Summary summary = new Summary(histogram);
+
+            summaries.add(summary);
+            addToShuffleboard(summary);
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Records the time taken by one run of the command scheduler.
+     *
+     * @param nanos The time taken, in nanoseconds.
+     */
+    public static void recordScheduler(long nanos) {
+        schedulerHistogram.record(nanos);
+    }
+
+    /**
+     * Records the time taken by the dashboard updates in one loop.
+     *
+     * @param nanos The time taken, in nanoseconds.
+     */
+    public static void recordDashboard(long nanos) {
+        dashboardHistogram.record(nanos);
+    }
+
+    /**
+     * Records the time taken by one whole loop, counting it as an overrun if it
+     * took longer than the loop period.
+     *
+     * @param nanos The time taken, in nanoseconds.
+     */
+    public static void recordLoop(long nanos) {
+        loopHistogram.record(nanos);
+
+        if (nanos > LOOP_BUDGET_NANOS) {
+            overruns++;
+        }
+
+        if (++loopsSinceSummary >= LOOPS_PER_SUMMARY) {
+            loopsSinceSummary = 0;
+            summaries.forEach(Summary::update);
+        }
+    }
+
+    /**
+     * Returns the number of loops that took longer than the loop period.
+     *
+     * @return The number of overruns.
+     */
+    public static long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * Add the timing tab to the Shuffleboard.
+     */
+    public static void initShuffleboard() {
+        if (timingTab != null) {
+            return;
+        }
+
+        timingTab = Shuffleboard.getTab("Timing");
+        timingTab.addNumber("Overruns", () -> overruns).withPosition(0, 0);
+
+        summaries.forEach(LoopTiming::addToShuffleboard);
+    }
+
+    private static void addToShuffleboard(Summary summary) {
+        if (timingTab == null) {
+            return;
+        }
+
+        ShuffleboardLayout layout = timingTab.getLayout(summary.histogram.getName(), BuiltInLayouts.kList).
+            withSize(2, 2);
+
+        layout.addNumber("p50 (ms)", () -> summary.p50);
+        layout.addNumber("p99 (ms)", () -> summary.p99);
+        layout.addNumber("Max (ms)", () -> summary.max);
+    }
+}
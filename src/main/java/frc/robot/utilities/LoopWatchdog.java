@@ -0,0 +1,212 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+import frc.robot.telemetry.TelemetryLog;
+import frc.robot.utilities.RobotPreferences.DoubleValue;
+
+/**
+ * Watches the main robot loop from a background thread and, when a loop runs
+ * past its budget, samples the stack of the main thread until the loop ends.
+ *
+ * <p>
+ * The samples are folded into one line per distinct stack, flame-graph style
+ * (outermost frame first, separated by semicolons, prefixed with the number of
+ * samples), and the most common stacks are reported to the console and the
+ * telemetry log. This shows where an overrunning loop spent its time, which
+ * the "Loop time overrun" warning does not.
+ *
+ * <p>
+ * The main thread only records the start and end of each loop, which is two
+ * volatile writes. The watchdog thread sleeps until the loop is due to end and
+ * only samples the stack if it has not.
+ */
+public final class LoopWatchdog {
+
+    @RobotPreferencesValue
+    public static DoubleValue LOOP_BUDGET = new DoubleValue("LoopWatchdog/BudgetMs", 20.0);
+
+    private static final long SAMPLE_INTERVAL_NANOS = 2_000_000L;
+    private static final long IDLE_INTERVAL_NANOS = 10_000_000L;
+    private static final int MAX_SAMPLES = 50;
+    private static final int MAX_FRAMES = 8;
+    private static final int MAX_REPORTED_STACKS = 5;
+    // Frames above the robot loop are the same for every sample.
+    private static final String LOOP_METHOD = "loopFunc";
+
+    private static Thread mainThread;
+    private static Thread watchdogThread;
+
+    private static volatile long loopCount;
+    private static volatile long loopStartNanos;
+    private static volatile long overruns;
+
+    private LoopWatchdog() {
+    }
+
+    /**
+     * Starts watching the loop run by the calling thread. This should be called
+     * once, from the main robot thread.
+     */
+    public static synchronized void start() {
+        if (watchdogThread != null) {
+            return;
+        }
+
+        mainThread = Thread.currentThread();
+        watchdogThread = new Thread(LoopWatchdog::watch, "Loop Watchdog");
+        watchdogThread.setDaemon(true);
+        watchdogThread.start();
+    }
+
+    /**
+     * Marks the start of a loop. Must only be called from the main robot thread.
+     */
+    public static void loopStarted() {
+        loopCount = loopCount + 1;
+        loopStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a loop. Must only be called from the main robot thread.
+     */
+    public static void loopFinished() {
+        loopStartNanos = 0;
+    }
+
+    /**
+     * Returns the number of overruns that were sampled.
+     *
+     * @return The number of overruns.
+     */
+    public static long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * The body of the watchdog thread.
+     */
+    private static void watch() {
+        long reportedLoop = 0;
+
+        while (true) {
+            final long start = loopStartNanos;
+            final long loop = loopCount;
+
+            if (start == 0 || loop == reportedLoop) {
+                LockSupport.parkNanos(IDLE_INTERVAL_NANOS);
+                continue;
+            }
+
+            final long budgetNanos = (long) (LOOP_BUDGET.getValue() * 1.0e6);
+            final long remaining = start + budgetNanos - System.nanoTime();
+
+            if (remaining > 0) {
+                LockSupport.parkNanos(remaining);
+                continue;
+            }
+
+            reportedLoop = loop;
+            sample(loop, start, budgetNanos);
+        }
+    }
+
+    /**
+     * Samples the stack of the main thread until the loop ends or enough samples
+     * have been taken, then reports the folded stacks.
+     */
+    private static void sample(long loop, long start, long budgetNanos) {
+        final Map<String, Integer> stacks = new HashMap<String, Integer>();
+        int samples = 0;
+
+        while (samples < MAX_SAMPLES && isRunning(loop)) {
+            final StackTraceElement[] trace = mainThread.getStackTrace();
+
+            // Discard the sample if the loop ended while it was taken.
+            if (!isRunning(loop)) {
+                break;
+            }
+
+            stacks.merge(fold(trace), 1, Integer::sum);
+            samples++;
+
+            LockSupport.parkNanos(SAMPLE_INTERVAL_NANOS);
+        }
+
+        if (samples == 0) {
+            return;
+        }
+
+        overruns++;
+        report(loop, (System.nanoTime() - start) / 1.0e6, budgetNanos / 1.0e6, samples, isRunning(loop), stacks);
+    }
+
+    private static boolean isRunning(long loop) {
+        return loopStartNanos != 0 && loopCount == loop;
+    }
+
+    /**
+     * Folds a stack trace into a single line, outermost frame first, starting
+     * below the robot loop and keeping only the innermost frames.
+     */
+    private static String fold(StackTraceElement[] trace) {
+        int outermost = trace.length - 1;
+
+        for (int i = 0; i < trace.length; i++) {
+            if (LOOP_METHOD.equals(trace[i].getMethodName())) {
+                outermost = i - 1;
+                break;
+            }
+        }
+
+        final int first = Math.min(outermost, MAX_FRAMES - 1);
+        final StringBuilder folded = new StringBuilder();
+
+        if (first < outermost) {
+            folded.append("..");
+        }
+
+        for (int i = first; i >= 0; i--) {
+            final String className = trace[i].getClassName();
+
+            if (folded.length() > 0) {
+                folded.append(';');
+            }
+            folded.append(className, className.lastIndexOf('.') + 1, className.length()).append('.')
+                    .append(trace[i].getMethodName());
+        }
+
+        return folded.toString();
+    }
+
+    private static void report(long loop, double elapsedMs, double budgetMs, int samples, boolean running,
+            Map<String, Integer> stacks) {
+        final List<Map.Entry<String, Integer>> sorted = new ArrayList<Map.Entry<String, Integer>>(stacks.entrySet());
+
+        sorted.sort((a, b) -> b.getValue() - a.getValue());
+
+        final String summary = String.format("LOOP OVERRUN: LOOP %d %s %.1f MS (BUDGET %.1f MS), %d STACK SAMPLES",
+                loop, running ? "STILL RUNNING AFTER" : "TOOK ABOUT", elapsedMs, budgetMs, samples);
+
+        System.out.println(summary);
+        TelemetryLog.logEvent(summary);
+
+        for (int i = 0; i < Math.min(sorted.size(), MAX_REPORTED_STACKS); i++) {
+            final String line = sorted.get(i).getValue() + " " + sorted.get(i).getKey();
+
+            System.out.println("  " + line);
+            TelemetryLog.logEvent(line);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018-2019 FIRST. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * A fixed-capacity history of timestamped robot poses, used to look up where
+ * the robot was at some time in the recent past (e.g. when a camera frame was
+ * captured).
+ *
+ * <p>
+ * The samples are kept in primitive arrays used as a ring buffer, so neither
+ * adding a sample nor looking one up allocates. One thread adds samples; any
+ * thread may look them up. Like {@link PoseSeqLock}, readers use a sequence
+ * number to detect a concurrent write and retry.
+ */
+public class PoseHistory {
+
+    private final int mask;
+    private final double[] timestamps;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] rotations;
+    private final double[] headings;
+
+    private volatile long sequence;
+    private long count;
+
+    /**
+     * Constructs an instance of this class.
+     *
+     * @param capacity The minimum number of samples to keep. It is rounded up to
+     *                 a power of two.
+     */
+    public PoseHistory(int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+
+        mask = size - 1;
+        timestamps = new double[size];
+        xs = new double[size];
+        ys = new double[size];
+        rotations = new double[size];
+        headings = new double[size];
+    }
+
+    /**
+     * Adds a sample, replacing the oldest one if the history is full. Samples must
+     * be added in timestamp order, and only from the writer thread.
+     *
+     * @param timestamp The time at which the pose was measured, in seconds.
+     * @param x         The X position, in meters.
+     * @param y         The Y position, in meters.
+     * @param rotation  The rotation of the robot on the field, in radians.
+     * @param heading   The total accumulated yaw angle of the gyro, in degrees.
+     */
+    public void add(double timestamp, double x, double y, double rotation, double heading) {
+        final long start = sequence;
+        final int index = (int) count & mask;
+
+        sequence = start + 1;
+        VarHandle.storeStoreFence();
+
+        timestamps[index] = timestamp;
+        xs[index] = x;
+        ys[index] = y;
+        rotations[index] = rotation;
+        headings[index] = heading;
+        count++;
+
+        sequence = start + 2;
+    }
+
+    /**
+     * Looks up the pose of the robot at the specified time, interpolating between
+     * the samples on either side of it. This takes O(log n) time.
+     *
+     * @param timestamp The time, in seconds.
+     * @param snapshot  The snapshot to fill in with the pose. If the time is
+     *                  outside of the history, it is filled in with the oldest or
+     *                  newest sample.
+     *
+     * @return True if the time was within the history.
+     */
+    public boolean getPoseAt(double timestamp, PoseSnapshot snapshot) {
+        long start;
+        boolean found;
+
+        do {
+            start = sequence;
+            found = lookup(timestamp, snapshot);
+            VarHandle.loadLoadFence();
+        } while ((start & 1) != 0 || start != sequence);
+
+        return found;
+    }
+
+    /**
+     * Looks up a pose without checking for a concurrent write. The values read may
+     * be inconsistent, but every array index is masked so a torn read can not
+     * fail; the caller discards the result if a write happened.
+     */
+    private boolean lookup(double timestamp, PoseSnapshot snapshot) {
+        final long newest = count - 1;
+        final long oldest = Math.max(0L, count - (mask + 1));
+
+        if (newest < oldest) {
+            return false;
+        }
+
+        if (timestamp >= timestamps[(int) newest & mask]) {
+            copy((int) newest & mask, snapshot);
+            return timestamp == timestamps[(int) newest & mask];
+        }
+
+        if (timestamp <= timestamps[(int) oldest & mask]) {
+            copy((int) oldest & mask, snapshot);
+            return timestamp == timestamps[(int) oldest & mask];
+        }
+
+        // Find the samples just before and after the time.
+        long low = oldest;
+        long high = newest;
+
+        while (high - low > 1) {
+            final long middle = (low + high) >>> 1;
+
+            if (timestamps[(int) middle & mask] <= timestamp) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+
+        final int before = (int) low & mask;
+        final int after = (int) high & mask;
+        final double span = timestamps[after] - timestamps[before];
+        final double t = span > 0.0 ? (timestamp - timestamps[before]) / span : 0.0;
+
+        snapshot.timestamp = timestamp;
+        snapshot.x = xs[before] + (xs[after] - xs[before]) * t;
+        snapshot.y = ys[before] + (ys[after] - ys[before]) * t;
+        snapshot.rotation = rotations[before]
+                + Math.IEEEremainder(rotations[after] - rotations[before], 2.0 * Math.PI) * t;
+        snapshot.heading = headings[before] + (headings[after] - headings[before]) * t;
+
+        return true;
+    }
+
+    private void copy(int index, PoseSnapshot snapshot) {
+        snapshot.timestamp = timestamps[index];
+        snapshot.x = xs[index];
+        snapshot.y = ys[index];
+        snapshot.rotation = rotations[index];
+        snapshot.heading = headings[index];
+    }
+}
@@ -0,0 +1,95 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018-2019 FIRST. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Publishes the robot pose from one writer thread to any number of reader
+ * threads without locking, using a sequence lock.
+ *
+ * <p>
+ * The writer makes the sequence number odd while it updates the fields, and
+ * even again when it is done. A reader retries until it sees the same even
+ * sequence number before and after reading the fields, so it always gets a
+ * consistent snapshot and never blocks the writer. Only one thread may write.
+ */
+public class PoseSeqLock {
+
+    private volatile long sequence;
+    private double timestamp;
+    private double x;
+    private double y;
+    private double rotation;
+    private double heading;
+
+    /**
+     * Publishes a new pose. Must only be called from the writer thread.
+     *
+     * @param timestamp The time at which the pose was measured, in seconds.
+     * @param x         The X position, in meters.
+     * @param y         The Y position, in meters.
+     * @param rotation  The rotation of the robot on the field, in radians.
+     * @param heading   The total accumulated yaw angle of the gyro, in degrees.
+     */
+    public void write(double timestamp, double x, double y, double rotation, double heading) {
+        final long start = sequence;
+
+        sequence = start + 1;
+        // Keep the field writes from being seen before the odd sequence number.
+        VarHandle.storeStoreFence();
+
+        this.timestamp = timestamp;
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        this.heading = heading;
+
+        sequence = start + 2;
+    }
+
+    /**
+     * Reads a consistent snapshot of the latest pose.
+     *
+     * @param snapshot The snapshot to fill in.
+     */
+    public void read(PoseSnapshot snapshot) {
+        long start;
+
+        do {
+            start = sequence;
+
+            snapshot.timestamp = timestamp;
+            snapshot.x = x;
+            snapshot.y = y;
+            snapshot.rotation = rotation;
+            snapshot.heading = heading;
+
+            // Keep the field reads from being done after the second sequence read.
+            VarHandle.loadLoadFence();
+        } while ((start & 1) != 0 || start != sequence);
+    }
+
+    /**
+     * Returns the gyro heading of the latest pose.
+     *
+     * @return The total accumulated yaw angle of the gyro, in degrees.
+     */
+    public double getHeading() {
+        long start;
+        double result;
+
+        do {
+            start = sequence;
+            result = heading;
+            VarHandle.loadLoadFence();
+        } while ((start & 1) != 0 || start != sequence);
+
+        return result;
+    }
+}
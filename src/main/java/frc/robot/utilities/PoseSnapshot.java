@@ -0,0 +1,65 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018-2019 FIRST. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+/**
+ * A snapshot of the robot pose at a point in time. Readers should allocate one
+ * up front and reuse it, so that reading the pose does not allocate.
+ */
+public class PoseSnapshot {
+    double timestamp;
+    double x;
+    double y;
+    double rotation;
+    double heading;
+
+    /**
+     * Returns the time at which the pose was measured.
+     *
+     * @return The timestamp, in seconds.
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the position of the robot along the X-axis of the field.
+     *
+     * @return The X position, in meters.
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the position of the robot along the Y-axis of the field.
+     *
+     * @return The Y position, in meters.
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the rotation of the robot on the field.
+     *
+     * @return The rotation, in radians.
+     */
+    public double getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Returns the total accumulated yaw angle of the gyro.
+     *
+     * @return The heading, in degrees.
+     */
+    public double getHeading() {
+        return heading;
+    }
+}
@@ -0,0 +1,428 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+/**
+ * A memory-mapped copy of the robot preferences, so that their values can be
+ * read at boot without waiting for NetworkTables.
+ *
+ * <p>
+ * Each preference is kept in its own fixed-size slot with its own checksum, so
+ * changing a value only rewrites that slot in memory. The changed pages are
+ * written to disk by a flusher thread, so that a burst of changes costs one
+ * flush and the threads changing the values never wait for the disk. A slot
+ * whose checksum does not match, e.g. because power was lost while it was being
+ * written, is ignored, and the value is read from NetworkTables instead. Keys
+ * or strings too long for a slot are not kept in the snapshot. The slots of
+ * keys that are no longer used are reused for new keys.
+ *
+ * <pre>
+ * File layout (big-endian)
+ *   offset  size  field
+ *        0     4  magic ("PRFS")
+ *        4     2  version (1)
+ *        6     2  slot size (128)
+ *        8     4  number of slots
+ *       12     4  CRC-32 of bytes 0-11
+ *      128   128  per slot: CRC-32 of the rest of the slot (4), type (1), key
+ *                 length (1), value length (2), key (56 bytes, UTF-8), value
+ *                 (64 bytes: an int, double or boolean, or a UTF-8 string)
+ * </pre>
+ *
+ * <p>
+ * The header takes a whole slot, so that no slot straddles a page. This class
+ * is thread-safe.
+ */
+final class PreferencesSnapshot {
+
+    public static final String FILE_NAME = "preferences.snap";
+
+    static final byte TYPE_NONE = 0;
+    static final byte TYPE_STRING = 1;
+    static final byte TYPE_INTEGER = 2;
+    static final byte TYPE_DOUBLE = 3;
+    static final byte TYPE_BOOLEAN = 4;
+
+    private static final int MAGIC = 0x5052_4653;
+    private static final short VERSION = 1;
+    private static final int SLOT_SIZE = 128;
+    private static final int CAPACITY = 256;
+    private static final int HEADER_CRC = 12;
+    private static final int SLOT_TYPE = 4;
+    private static final int SLOT_KEY_LENGTH = 5;
+    private static final int SLOT_VALUE_LENGTH = 6;
+    private static final int SLOT_KEY = 8;
+    private static final int SLOT_VALUE = 64;
+    private static final int MAX_KEY_LENGTH = SLOT_VALUE - SLOT_KEY;
+    private static final int MAX_VALUE_LENGTH = SLOT_SIZE - SLOT_VALUE;
+    private static final long FLUSH_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final MappedByteBuffer buffer;
+    private final Map<String, Integer> slots = new HashMap<String, Integer>();
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<Integer>();
+    private int nextFree;
+    private boolean reportedFull;
+    private volatile boolean dirty;
+    private Thread flusher;
+
+    private PreferencesSnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps the snapshot file, creating it if it does not exist or is invalid.
+     *
+     * @param file The snapshot file.
+     *
+     * @return The snapshot. If the file cannot be mapped, the snapshot is empty
+     *         and nothing can be added to it.
+     */
+    static PreferencesSnapshot open(Path file) {
+        final long startTime = System.nanoTime();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            final boolean created = channel.size() == 0;
+            final PreferencesSnapshot snapshot = new PreferencesSnapshot(
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) SLOT_SIZE * (CAPACITY + 1)));
+
+            if (!snapshot.isHeaderValid()) {
+                if (!created) {
+                    System.out.println("PREFERENCES SNAPSHOT " + file + " IS INVALID; RECREATING");
+                }
+                snapshot.format();
+            }
+
+            final int dropped = snapshot.index();
+
+            System.out.println(String.format("PREFERENCES SNAPSHOT LOADED IN %.1f ms (%d SLOTS, %d INVALID)",
+                (System.nanoTime() - startTime) / 1.0e6, snapshot.slots.size(), dropped));
+
+            return snapshot;
+        } catch (IOException | UnsupportedOperationException e) {
+            System.out.println("PREFERENCES SNAPSHOT UNAVAILABLE: " + e.getMessage());
+            return new PreferencesSnapshot(null);
+        }
+    }
+
+    /**
+     * Returns the slot holding a key, if its type matches.
+     *
+     * @param key  The preferences key.
+     * @param type The type of the value.
+     *
+     * @return The slot, or -1 if the key is not in the snapshot with this type.
+     */
+    synchronized int find(String key, byte type) {
+        final Integer slot = slots.get(key);
+
+        return slot != null && buffer.get(offset(slot) + SLOT_TYPE) == type ? slot : -1;
+    }
+
+    /**
+     * Returns the slot for a key, adding it to the snapshot if needed. The value
+     * must be written to the slot before it is next read.
+     *
+     * @param key  The preferences key.
+     * @param type The type of the value.
+     *
+     * @return The slot, or -1 if the key is too long or the snapshot is full.
+     */
+    synchronized int add(String key, byte type) {
+        if (buffer == null) {
+            return -1;
+        }
+
+        Integer slot = slots.get(key);
+
+        if (slot == null) {
+            final byte[] encoded = key.getBytes(StandardCharsets.UTF_8);
+
+            if (encoded.length > MAX_KEY_LENGTH) {
+                return -1;
+            }
+
+            if (!freeSlots.isEmpty()) {
+                slot = freeSlots.poll();
+            } else if (nextFree < CAPACITY) {
+                slot = nextFree++;
+            } else {
+                if (!reportedFull) {
+                    System.out.println("PREFERENCES SNAPSHOT FULL; NOT ADDING " + key + " OR LATER KEYS");
+                    reportedFull = true;
+                }
+                return -1;
+            }
+
+            slots.put(key, slot);
+
+            final int offset = offset(slot);
+
+            buffer.put(offset + SLOT_KEY_LENGTH, (byte) encoded.length);
+            for (int i = 0; i < encoded.length; i++) {
+                buffer.put(offset + SLOT_KEY + i, encoded[i]);
+            }
+        }
+
+        buffer.put(offset(slot) + SLOT_TYPE, type);
+
+        return slot;
+    }
+
+    synchronized int getInt(int slot) {
+        return buffer.getInt(offset(slot) + SLOT_VALUE);
+    }
+
+    synchronized double getDouble(int slot) {
+        return buffer.getDouble(offset(slot) + SLOT_VALUE);
+    }
+
+    synchronized boolean getBoolean(int slot) {
+        return buffer.get(offset(slot) + SLOT_VALUE) != 0;
+    }
+
+    synchronized String getString(int slot) {
+        final int offset = offset(slot);
+        final byte[] encoded = new byte[buffer.getShort(offset + SLOT_VALUE_LENGTH)];
+
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = buffer.get(offset + SLOT_VALUE + i);
+        }
+
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    synchronized void putInt(int slot, int value) {
+        final int offset = offset(slot);
+
+        if (isValid(slot) && buffer.getInt(offset + SLOT_VALUE) == value) {
+            return;
+        }
+
+        buffer.putInt(offset + SLOT_VALUE, value);
+        commit(slot);
+    }
+
+    synchronized void putDouble(int slot, double value) {
+        final int offset = offset(slot);
+
+        if (isValid(slot) && Double.doubleToRawLongBits(buffer.getDouble(offset + SLOT_VALUE)) == Double
+                .doubleToRawLongBits(value)) {
+            return;
+        }
+
+        buffer.putDouble(offset + SLOT_VALUE, value);
+        commit(slot);
+    }
+
+    synchronized void putBoolean(int slot, boolean value) {
+        final int offset = offset(slot);
+
+        if (isValid(slot) && (buffer.get(offset + SLOT_VALUE) != 0) == value) {
+            return;
+        }
+
+        buffer.put(offset + SLOT_VALUE, (byte) (value ? 1 : 0));
+        commit(slot);
+    }
+
+    /**
+     * Writes a string to a slot.
+     *
+     * @return False if the string is too long for the slot, in which case the
+     *         slot is emptied.
+     */
+    synchronized boolean putString(int slot, String value) {
+        final int offset = offset(slot);
+        final byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+
+        if (encoded.length > MAX_VALUE_LENGTH) {
+            buffer.put(offset + SLOT_TYPE, TYPE_NONE);
+            commit(slot);
+            return false;
+        }
+
+        if (isValid(slot) && value.equals(getString(slot))) {
+            return true;
+        }
+
+        buffer.putShort(offset + SLOT_VALUE_LENGTH, (short) encoded.length);
+        for (int i = 0; i < encoded.length; i++) {
+            buffer.put(offset + SLOT_VALUE + i, encoded[i]);
+        }
+        commit(slot);
+
+        return true;
+    }
+
+    /**
+     * Empties the slots of the keys that are not in use, so that they are not
+     * read at the next boot, and frees them for new keys.
+     *
+     * @param keys The keys in use.
+     *
+     * @return The number of slots freed.
+     */
+    synchronized int retain(Set<String> keys) {
+        int removed = 0;
+
+        for (Iterator<Map.Entry<String, Integer>> i = slots.entrySet().iterator(); i.hasNext();) {
+            final Map.Entry<String, Integer> slot = i.next();
+
+            if (keys.contains(slot.getKey())) {
+                continue;
+            }
+
+            final int offset = offset(slot.getValue());
+
+            if (buffer.get(offset + SLOT_TYPE) != TYPE_NONE) {
+                buffer.put(offset + SLOT_TYPE, TYPE_NONE);
+                commit(slot.getValue());
+            }
+
+            i.remove();
+            freeSlots.add(slot.getValue());
+            removed++;
+        }
+
+        return removed;
+    }
+
+    /**
+     * Starts the thread that writes the changed slots to disk. Until it is
+     * started, changes are only written when the operating system chooses to.
+     *
+     * @param wrapper Wraps the body of the thread, e.g. to set its priority.
+     */
+    synchronized void startFlusher(UnaryOperator<Runnable> wrapper) {
+        if (buffer == null || flusher != null) {
+            return;
+        }
+
+        flusher = new Thread(wrapper.apply(this::flush), "Preferences Snapshot Flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private static int offset(int slot) {
+        return SLOT_SIZE * (slot + 1);
+    }
+
+    private boolean isHeaderValid() {
+        return buffer.getInt(0) == MAGIC && buffer.getShort(4) == VERSION && buffer.getShort(6) == SLOT_SIZE
+                && buffer.getInt(8) == CAPACITY && buffer.getInt(HEADER_CRC) == checksum(0, HEADER_CRC);
+    }
+
+    private boolean isValid(int slot) {
+        final int offset = offset(slot);
+
+        return buffer.getInt(offset) == checksum(offset + 4, SLOT_SIZE - 4);
+    }
+
+    /**
+     * Clears the file and writes the header.
+     */
+    private void format() {
+        for (int i = 0; i < buffer.limit(); i += Long.BYTES) {
+            buffer.putLong(i, 0);
+        }
+
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, (short) SLOT_SIZE);
+        buffer.putInt(8, CAPACITY);
+        buffer.putInt(HEADER_CRC, checksum(0, HEADER_CRC));
+        buffer.force();
+    }
+
+    /**
+     * Reads the keys of the valid slots. The slots are filled in order, so the
+     * first slot without a key ends the search.
+     *
+     * @return The number of slots with a key whose checksum does not match.
+     */
+    private int index() {
+        int dropped = 0;
+
+        for (nextFree = 0; nextFree < CAPACITY; nextFree++) {
+            final int offset = offset(nextFree);
+            final byte[] key = new byte[buffer.get(offset + SLOT_KEY_LENGTH) & 0xff];
+
+            if (key.length == 0) {
+                break;
+            }
+
+            for (int i = 0; i < key.length; i++) {
+                key[i] = buffer.get(offset + SLOT_KEY + i);
+            }
+
+            // A slot that fails its checksum keeps its place, and is rewritten when
+            // the key is next added.
+            if (!isValid(nextFree)) {
+                buffer.put(offset + SLOT_TYPE, TYPE_NONE);
+                dropped++;
+            }
+
+            slots.put(new String(key, StandardCharsets.UTF_8), nextFree);
+        }
+
+        return dropped;
+    }
+
+    /**
+     * Updates the checksum of a slot, and marks the snapshot for the flusher.
+     */
+    private void commit(int slot) {
+        final int offset = offset(slot);
+
+        buffer.putInt(offset, checksum(offset + 4, SLOT_SIZE - 4));
+        dirty = true;
+    }
+
+    /**
+     * The body of the flusher thread. A slot changed while the pages are being
+     * written marks the snapshot again, so it is written on the next pass.
+     */
+    private void flush() {
+        while (true) {
+            LockSupport.parkNanos(FLUSH_PERIOD_NANOS);
+
+            if (dirty) {
+                dirty = false;
+                buffer.force();
+            }
+        }
+    }
+
+    private int checksum(int offset, int length) {
+        final ByteBuffer range = buffer.duplicate();
+        final CRC32 crc = new CRC32();
+
+        range.position(offset).limit(offset + length);
+        crc.update(range);
+
+        return (int) crc.getValue();
+    }
+}
@@ -7,20 +7,34 @@
 
 package frc.robot.utilities;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import org.reflections.Reflections;
-import org.reflections.util.ConfigurationBuilder;
-
-import static org.reflections.scanners.Scanners.*;
-
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableType;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.Preferences;
 
 /**
  * An implementation of robot preferences.
+ *
+ * <p>
+ * The values are also kept in a snapshot file in the deploy directory, so that
+ * they can be read when they are constructed, without waiting for the
+ * NetworkTables preferences. When the preferences are initialized, each value
+ * read from the snapshot is replaced with the one in NetworkTables, if the key
+ * is there, before it is checked against its default.
  */
 public class RobotPreferences {
 
@@ -68,6 +82,19 @@ public class RobotPreferences {
         public void visit(BooleanValue value);
     }
 
+    /**
+     * An interface implemented by the registry of preferences values generated at
+     * build time from the fields annotated with {@link RobotPreferencesValue}.
+     */
+    public interface IValueRegistry {
+        /**
+         * Returns all of the preferences values in the robot.
+         * 
+         * @return The preferences values.
+         */
+        public Value[] getValues();
+    }
+
     /** The base class for all preferences value types. */
     public static abstract class Value implements IVisitableValue {
         protected final String key;
@@ -99,6 +126,22 @@ public class RobotPreferences {
             return preferences.containsKey(this.key);
         }
 
+        /**
+         * Returns true if the current value is the default value.
+         * 
+         * @return Whether the value is set to the default.
+         */
+        public abstract boolean isDefault();
+
+        /**
+         * Returns true if the preferences key exists with a different type than this
+         * value's. The key then reads as the default value, and cannot be written
+         * until it has been removed.
+         * 
+         * @return Whether the stored type is wrong.
+         */
+        abstract boolean hasWrongType();
+
         /**
          * Writes the default value of this preference key to the preferences file.
          */
@@ -112,39 +155,151 @@ public class RobotPreferences {
         public void printIfNotDefault() {
             accept(printIfNotDefaultVisitor);
         }
+
+        /**
+         * Returns true if the current value was read from the snapshot.
+         * 
+         * @return Whether the value came from the snapshot.
+         */
+        public abstract boolean isFromSnapshot();
+
+        /**
+         * Writes the current value, e.g. one read from the snapshot, to the
+         * preferences file.
+         */
+        public abstract void writeCurrentValue();
+
+        /**
+         * Replaces a value read from the snapshot with the value in the
+         * preferences file, if the key exists there.
+         */
+        abstract void reconcile();
     }
 
     /**
      * A base class for a preference value of the specified type.
      * 
+     * <p>
+     * The current value is cached locally so that reading it is a single volatile
+     * read. The cache is refreshed by a NetworkTables listener whenever the key is
+     * changed, whether locally or from the dashboard. Subclasses hold the cached
+     * and default values in fields of the primitive type, so reading a value never
+     * boxes.
+     * 
+     * <p>
+     * The initial value is read from the snapshot if it is there, and from
+     * NetworkTables otherwise. Every change to the cached value is copied to the
+     * key's slot in the snapshot.
+     * 
      * @param <TValue> The preference value type.
      */
     public static abstract class TypedValue<TValue> extends Value {
-        protected final TValue defaultValue;
+        protected final NetworkTableEntry entry;
+        volatile int slot = -1;
+        private volatile boolean fromSnapshot;
 
         /**
          * Constructs an instance of this class.
          * 
-         * @param key          The preferences key.
-         * @param defaultValue The default value.
+         * @param key The preferences key.
          */
-        protected TypedValue(final String key, final TValue defaultValue) {
+        protected TypedValue(final String key) {
             super(key);
-            this.defaultValue = defaultValue;
+            this.entry = table.getEntry(key);
         }
 
+        /**
+         * Reads the current value and starts listening for changes to it. Subclasses
+         * call this at the end of their constructor.
+         */
+        protected final void listen() {
+            this.slot = snapshot.find(this.key, getSnapshotType());
+
+            if (this.slot >= 0) {
+                load();
+                this.fromSnapshot = true;
+            } else {
+                this.slot = snapshot.add(this.key, getSnapshotType());
+                update();
+            }
+
+            this.entry.addListener(notification -> update(), EntryListenerFlags.kNew | EntryListenerFlags.kUpdate
+                    | EntryListenerFlags.kDelete | EntryListenerFlags.kLocal);
+        }
+
+        @Override
+        public boolean isFromSnapshot() {
+            return this.fromSnapshot;
+        }
+
+        @Override
+        boolean hasWrongType() {
+            final NetworkTableType type = this.entry.getType();
+
+            return type != NetworkTableType.kUnassigned && type != getEntryType();
+        }
+
+        @Override
+        void reconcile() {
+            if (this.fromSnapshot && this.entry.exists()) {
+                update();
+            }
+        }
+
+        /**
+         * Reads the current value from NetworkTables and copies it to the
+         * snapshot.
+         */
+        private void update() {
+            refresh();
+            this.fromSnapshot = false;
+            if (this.slot >= 0) {
+                store();
+            }
+        }
+
+        /**
+         * Reads the current value of the preferences key from NetworkTables into the
+         * cache, or the default value if the key does not exist.
+         */
+        protected abstract void refresh();
+
+        /**
+         * Returns the type of the value in NetworkTables.
+         * 
+         * @return The type.
+         */
+        abstract NetworkTableType getEntryType();
+
+        /**
+         * Returns the type of the value in the snapshot.
+         * 
+         * @return One of the PreferencesSnapshot.TYPE_ constants.
+         */
+        abstract byte getSnapshotType();
+
+        /**
+         * Reads the cached value from the key's slot in the snapshot.
+         */
+        abstract void load();
+
+        /**
+         * Writes the cached value to the key's slot in the snapshot.
+         */
+        abstract void store();
+
         /**
          * Returns the default value of the preferences key.
          * 
          * @return The default value.
          */
-        public TValue getDefaultValue() {
-            return this.defaultValue;
-        }
+        public abstract TValue getDefaultValue();
     }
 
     /** A class implementing a preferences string value. */
     public static class StringValue extends TypedValue<String> {
+        private final String defaultValue;
+        private volatile String value;
 
         /**
          * Constructs an instance of this class.
@@ -153,7 +308,9 @@ public class RobotPreferences {
          * @param defaultValue The default value.
          */
         public StringValue(final String key, final String defaultValue) {
-            super(key, defaultValue);
+            super(key);
+            this.defaultValue = defaultValue;
+            listen();
         }
 
         @Override
@@ -161,13 +318,18 @@ public class RobotPreferences {
             vistor.visit(this);
         }
 
+        @Override
+        public String getDefaultValue() {
+            return this.defaultValue;
+        }
+
         /**
          * Returns the current value of the preferences key.
          * 
          * @return The current value.
          */
         public String getValue() {
-            return preferences.getString(this.key, this.defaultValue);
+            return this.value;
         }
 
         /**
@@ -177,11 +339,54 @@ public class RobotPreferences {
          */
         public void setValue(String value) {
             preferences.putString(this.key, value);
+            this.value = value;
+            if (this.slot >= 0) {
+                store();
+            }
+        }
+
+        @Override
+        public void writeCurrentValue() {
+            preferences.putString(this.key, this.value);
+        }
+
+        @Override
+        public boolean isDefault() {
+            return this.value.equals(this.defaultValue);
+        }
+
+        @Override
+        protected void refresh() {
+            this.value = this.entry.getString(this.defaultValue);
+        }
+
+        @Override
+        NetworkTableType getEntryType() {
+            return NetworkTableType.kString;
+        }
+
+        @Override
+        byte getSnapshotType() {
+            return PreferencesSnapshot.TYPE_STRING;
+        }
+
+        @Override
+        void load() {
+            this.value = snapshot.getString(this.slot);
+        }
+
+        @Override
+        void store() {
+            if (!snapshot.putString(this.slot, this.value)) {
+                this.slot = -1;
+            }
         }
     }
 
     /** A class implementing a preferences integer value. */
     public static class IntegerValue extends TypedValue<Integer> {
+        private final int defaultValue;
+        private volatile int value;
 
         /**
          * Constructs an instance of this class.
@@ -190,7 +395,9 @@ public class RobotPreferences {
          * @param defaultValue The default value.
          */
         public IntegerValue(final String key, final int defaultValue) {
-            super(key, defaultValue);
+            super(key);
+            this.defaultValue = defaultValue;
+            listen();
         }
 
         @Override
@@ -198,13 +405,27 @@ public class RobotPreferences {
             vistor.visit(this);
         }
 
+        @Override
+        public Integer getDefaultValue() {
+            return this.defaultValue;
+        }
+
+        /**
+         * Returns the default value of the preferences key without boxing it.
+         * 
+         * @return The default value.
+         */
+        public int getDefaultAsInt() {
+            return this.defaultValue;
+        }
+
         /**
          * Returns the current value of the preferences key.
          * 
          * @return The current value.
          */
         public int getValue() {
-            return preferences.getInt(this.key, this.defaultValue);
+            return this.value;
         }
 
         /**
@@ -214,11 +435,52 @@ public class RobotPreferences {
          */
         public void setValue(int value) {
             preferences.putInt(this.key, value);
+            this.value = value;
+            if (this.slot >= 0) {
+                store();
+            }
+        }
+
+        @Override
+        public void writeCurrentValue() {
+            preferences.putInt(this.key, this.value);
+        }
+
+        @Override
+        public boolean isDefault() {
+            return this.value == this.defaultValue;
+        }
+
+        @Override
+        protected void refresh() {
+            this.value = (int) this.entry.getDouble(this.defaultValue);
+        }
+
+        @Override
+        NetworkTableType getEntryType() {
+            return NetworkTableType.kDouble;
+        }
+
+        @Override
+        byte getSnapshotType() {
+            return PreferencesSnapshot.TYPE_INTEGER;
+        }
+
+        @Override
+        void load() {
+            this.value = snapshot.getInt(this.slot);
+        }
+
+        @Override
+        void store() {
+            snapshot.putInt(this.slot, this.value);
         }
     }
 
     /** A class implementing a preferences double value. */
     public static class DoubleValue extends TypedValue<Double> {
+        private final double defaultValue;
+        private volatile double value;
 
         /**
          * Constructs an instance of this class.
@@ -227,7 +489,9 @@ public class RobotPreferences {
          * @param defaultValue The default value.
          */
         public DoubleValue(final String key, final double defaultValue) {
-            super(key, defaultValue);
+            super(key);
+            this.defaultValue = defaultValue;
+            listen();
         }
 
         @Override
@@ -235,13 +499,27 @@ public class RobotPreferences {
             vistor.visit(this);
         }
 
+        @Override
+        public Double getDefaultValue() {
+            return this.defaultValue;
+        }
+
+        /**
+         * Returns the default value of the preferences key without boxing it.
+         * 
+         * @return The default value.
+         */
+        public double getDefaultAsDouble() {
+            return this.defaultValue;
+        }
+
         /**
          * Returns the current value of the preferences key.
          * 
          * @return The current value.
          */
         public double getValue() {
-            return preferences.getDouble(this.key, this.defaultValue);
+            return this.value;
         }
 
         /**
@@ -251,11 +529,52 @@ public class RobotPreferences {
          */
         public void setValue(double value) {
             preferences.putDouble(this.key, value);
+            this.value = value;
+            if (this.slot >= 0) {
+                store();
+            }
+        }
+
+        @Override
+        public void writeCurrentValue() {
+            preferences.putDouble(this.key, this.value);
+        }
+
+        @Override
+        public boolean isDefault() {
+            return this.value == this.defaultValue;
+        }
+
+        @Override
+        protected void refresh() {
+            this.value = this.entry.getDouble(this.defaultValue);
+        }
+
+        @Override
+        NetworkTableType getEntryType() {
+            return NetworkTableType.kDouble;
+        }
+
+        @Override
+        byte getSnapshotType() {
+            return PreferencesSnapshot.TYPE_DOUBLE;
+        }
+
+        @Override
+        void load() {
+            this.value = snapshot.getDouble(this.slot);
+        }
+
+        @Override
+        void store() {
+            snapshot.putDouble(this.slot, this.value);
         }
     }
 
     /** A class implementing a preferences Boolean value. */
     public static class BooleanValue extends TypedValue<Boolean> {
+        private final boolean defaultValue;
+        private volatile boolean value;
 
         /**
          * Constructs an instance of this class.
@@ -264,7 +583,9 @@ public class RobotPreferences {
          * @param defaultValue The default value.
          */
         public BooleanValue(final String key, final boolean defaultValue) {
-            super(key, defaultValue);
+            super(key);
+            this.defaultValue = defaultValue;
+            listen();
         }
 
         @Override
@@ -272,13 +593,27 @@ public class RobotPreferences {
             vistor.visit(this);
         }
 
+        @Override
+        public Boolean getDefaultValue() {
+            return this.defaultValue;
+        }
+
+        /**
+         * Returns the default value of the preferences key without boxing it.
+         * 
+         * @return The default value.
+         */
+        public boolean getDefaultAsBoolean() {
+            return this.defaultValue;
+        }
+
         /**
          * Returns the current value of the preferences key.
          * 
          * @return The current value.
          */
         public boolean getValue() {
-            return preferences.getBoolean(this.key, this.defaultValue);
+            return this.value;
         }
 
         /**
@@ -288,6 +623,132 @@ public class RobotPreferences {
          */
         public void setValue(boolean value) {
             preferences.putBoolean(this.key, value);
+            this.value = value;
+            if (this.slot >= 0) {
+                store();
+            }
+        }
+
+        @Override
+        public void writeCurrentValue() {
+            preferences.putBoolean(this.key, this.value);
+        }
+
+        @Override
+        public boolean isDefault() {
+            return this.value == this.defaultValue;
+        }
+
+        @Override
+        protected void refresh() {
+            this.value = this.entry.getBoolean(this.defaultValue);
+        }
+
+        @Override
+        NetworkTableType getEntryType() {
+            return NetworkTableType.kBoolean;
+        }
+
+        @Override
+        byte getSnapshotType() {
+            return PreferencesSnapshot.TYPE_BOOLEAN;
+        }
+
+        @Override
+        void load() {
+            this.value = snapshot.getBoolean(this.slot);
+        }
+
+        @Override
+        void store() {
+            snapshot.putBoolean(this.slot, this.value);
+        }
+    }
+
+    /**
+     * A set of changes to the preferences that is computed in memory against a
+     * single snapshot of the preferences keys, and then applied with one
+     * NetworkTables flush.
+     */
+    public static class Batch {
+        private final Set<String> keys;
+        private final List<Value> defaultValues = new ArrayList<Value>();
+        private final List<Value> currentValues = new ArrayList<Value>();
+        private final List<String> removedKeys = new ArrayList<String>();
+
+        /**
+         * Constructs an instance of this class, taking a snapshot of the current
+         * preferences keys.
+         */
+        public Batch() {
+            this.keys = new HashSet<String>(table.getKeys());
+        }
+
+        /**
+         * Returns the preferences keys in the snapshot.
+         * 
+         * @return The preferences keys.
+         */
+        public Set<String> getKeys() {
+            return this.keys;
+        }
+
+        /**
+         * Returns true if the preferences key is in the snapshot.
+         * 
+         * @param key The preferences key.
+         * 
+         * @return Whether the key exists.
+         */
+        public boolean contains(String key) {
+            return this.keys.contains(key);
+        }
+
+        /**
+         * Adds writing the default value of a preferences key to the batch.
+         * 
+         * @param value The preferences value.
+         */
+        public void writeDefaultValue(Value value) {
+            this.defaultValues.add(value);
+        }
+
+        /**
+         * Adds writing the current value of a preferences key to the batch.
+         * 
+         * @param value The preferences value.
+         */
+        public void writeCurrentValue(Value value) {
+            this.currentValues.add(value);
+        }
+
+        /**
+         * Adds removing a preferences key to the batch.
+         * 
+         * @param key The preferences key.
+         */
+        public void remove(String key) {
+            this.removedKeys.add(key);
+        }
+
+        /**
+         * Returns the number of changes in the batch.
+         * 
+         * @return The number of changes.
+         */
+        public int size() {
+            return this.defaultValues.size() + this.currentValues.size() + this.removedKeys.size();
+        }
+
+        /**
+         * Applies the changes in the batch. The keys are removed first, so that a
+         * key stored with the wrong type can be removed and written again.
+         */
+        public void apply() {
+            this.removedKeys.forEach(k -> preferences.remove(k));
+            this.defaultValues.forEach(v -> v.writeDefaultValue());
+            this.currentValues.forEach(v -> v.writeCurrentValue());
+            NetworkTableInstance.getDefault().flush();
         }
     }
 
@@ -304,17 +765,17 @@ public class RobotPreferences {
 
         @Override
         public void visit(final IntegerValue value) {
-            value.setValue(value.getDefaultValue());
+            value.setValue(value.getDefaultAsInt());
         }
 
         @Override
         public void visit(final DoubleValue value) {
-            value.setValue(value.getDefaultValue());
+            value.setValue(value.getDefaultAsDouble());
         }
 
         @Override
         public void visit(final BooleanValue value) {
-            value.setValue(value.getDefaultValue());
+            value.setValue(value.getDefaultAsBoolean());
         }
 
     }
@@ -342,7 +803,7 @@ public class RobotPreferences {
         public void visit(IntegerValue value) {
             int currentValue = value.getValue();
 
-            if (currentValue != value.getDefaultValue()) {
+            if (currentValue != value.getDefaultAsInt()) {
                 printNonDefaultValue(value.getKey(), Integer.toString(currentValue));
             }
         }
@@ -351,7 +812,7 @@ public class RobotPreferences {
         public void visit(DoubleValue value) {
             double currentValue = value.getValue();
 
-            if (currentValue != value.getDefaultValue()) {
+            if (currentValue != value.getDefaultAsDouble()) {
                 printNonDefaultValue(value.getKey(), Double.toString(currentValue));
             }
         }
@@ -360,72 +821,205 @@ public class RobotPreferences {
         public void visit(BooleanValue value) {
             boolean currentValue = value.getValue();
 
-            if (currentValue != value.getDefaultValue()) {
+            if (currentValue != value.getDefaultAsBoolean()) {
                 printNonDefaultValue(value.getKey(), Boolean.toString(currentValue));
             }
         }
 
     }
 
-    @RobotPreferencesValue
-    public static final BooleanValue WRITE_DEFAULT = new BooleanValue("WriteDefaultPrefs", true);
+    private static final String REGISTRY_CLASS_NAME = "frc.robot.utilities.RobotPreferencesRegistry";
 
+    // These must be initialized before any of the values below are constructed.
+    private static final PreferencesSnapshot snapshot = PreferencesSnapshot.open(getSnapshotFile());
     private static final Preferences preferences = Preferences.getInstance();
+    private static final NetworkTable table = NetworkTableInstance.getDefault().getTable("Preferences");
     private static final WriteDefaultVistor writeDefaultVisitor = new WriteDefaultVistor();
     private static final PrintIfNotDefaultVisitor printIfNotDefaultVisitor = new PrintIfNotDefaultVisitor();
 
+    private static boolean started;
+
+    @RobotPreferencesValue
+    public static final BooleanValue WRITE_DEFAULT = new BooleanValue("WriteDefaultPrefs", true);
+
     /**
      * Initializes the preferences, write default preferences if needed/requested.
      */
     public static void init() {
-        if (WRITE_DEFAULT.getValue()) {
-            // Remove all keys, and write default values to the known ones.
-            preferences.removeAll();
-            getValues().forEach(p -> p.writeDefaultValue());
-            WRITE_DEFAULT.setValue(false);
-        } else {
-            HashSet<String> validKeys = new HashSet<String>();
+        final long startTime = System.nanoTime();
+        final List<Value> values = getValues().collect(Collectors.toList());
+        final int changes = init(values.stream());
+
+        System.out.println(String.format("PREFERENCES INITIALIZED IN %.1f ms (%d CHANGES)",
+            (System.nanoTime() - startTime) / 1.0e6, changes));
+
+        if (!started) {
+            snapshot.retain(values.stream().map(Value::getKey).collect(Collectors.toSet()));
+            snapshot.startFlusher(body -> ThreadPolicy.background("Preferences Snapshot Flusher", body));
+            started = true;
+        }
+    }
 
-            // Print if non-default values and add keys not currently in the preferences.
-            getValues().forEach(p -> {
-                if (p.exists()) {
-                    p.printIfNotDefault();
+    /**
+     * Initializes the preferences from the specified values, write default
+     * preferences if needed/requested.
+     * 
+     * @param values All of the preferences values in the robot.
+     * 
+     * @return The number of preferences keys written or removed.
+     */
+    static int init(Stream<Value> values) {
+        final Batch batch = new Batch();
+        final HashSet<String> validKeys = new HashSet<String>();
+
+        // The snapshot may be out of date, e.g. if the preferences were edited while
+        // the robot was off, so the value in NetworkTables decides.
+        reconcile(WRITE_DEFAULT, batch);
+
+        final boolean writeDefault = WRITE_DEFAULT.getValue();
+
+        // Add keys not currently in the preferences, from the snapshot if they are
+        // there, and either reset or print the non-default values of the rest. Keys
+        // stored with the wrong type read as the default, and cannot be written, so
+        // they are removed and added again.
+        values.forEach(p -> {
+            final boolean wrongType = reconcile(p, batch);
+
+            if (writeDefault && p == WRITE_DEFAULT) {
+                // Set to false below, as part of the same flush.
+            } else if (!batch.contains(p.getKey()) || wrongType) {
+                if (wrongType) {
+                    System.out.println(String.format("REWRITING KEY WITH WRONG TYPE: %s", p.getKey()));
+                    batch.remove(p.getKey());
+                }
+                if (p.isFromSnapshot() && !writeDefault) {
+                    batch.writeCurrentValue(p);
                 } else {
-                    p.writeDefaultValue();
+                    batch.writeDefaultValue(p);
+                }
+            } else if (writeDefault) {
+                if (!p.isDefault()) {
+                    batch.writeDefaultValue(p);
                 }
-                validKeys.add(p.getKey());
-            });
+            } else {
+                p.printIfNotDefault();
+            }
+            validKeys.add(p.getKey());
+        });
 
-            // Remove unused preferences keys. (Keys with leading "." are internal to
-            // the Shuffleboard implementation and should not be removed.)
-            preferences.getKeys().stream()
+        // Remove unused preferences keys. (Keys with leading "." are internal to
+        // the Shuffleboard implementation and should not be removed.) If the values
+        // could not be found, e.g. because the classpath scanner is not available,
+        // every key would look unused, so none are removed.
+        if (validKeys.contains(WRITE_DEFAULT.getKey())) {
+            batch.getKeys().stream()
                 .filter(k -> !k.startsWith(".") && !validKeys.contains(k))
                 .forEach(k -> {
                     System.out.println(String.format("REMOVING UNUSED KEY: %s", k));
-                    preferences.remove(k);
+                    batch.remove(k);
                 });
+        } else {
+            System.out.println("PREFERENCES VALUES NOT FOUND; NOT REMOVING UNUSED KEYS");
         }
+
+        if (writeDefault) {
+            // If the key has the wrong type, it read as the default (true), and
+            // must be removed before it can be set.
+            if (WRITE_DEFAULT.hasWrongType()) {
+                System.out.println(String.format("REWRITING KEY WITH WRONG TYPE: %s", WRITE_DEFAULT.getKey()));
+                preferences.remove(WRITE_DEFAULT.getKey());
+            }
+            WRITE_DEFAULT.setValue(false);
+        }
+
+        batch.apply();
+
+        return batch.size();
+    }
+
+    /**
+     * Replaces a value read from the snapshot with the one in NetworkTables, if
+     * the key is there with the right type.
+     * 
+     * @param value The preferences value.
+     * @param batch The batch, holding the keys in NetworkTables.
+     * 
+     * @return True if the key is in NetworkTables with the wrong type, in which
+     *         case the value is not replaced.
+     */
+    private static boolean reconcile(Value value, Batch batch) {
+        if (!batch.contains(value.getKey())) {
+            return false;
+        }
+        if (value.hasWrongType()) {
+            return true;
+        }
+        if (value.isFromSnapshot()) {
+            value.reconcile();
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the snapshot the values are kept in, e.g. for a test to change it.
+     * 
+     * @return The snapshot.
+     */
+    static PreferencesSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the snapshot file: the one named by the "robotpreferences.snapshot"
+     * system property (e.g. a temporary file for a benchmark or test), or the one
+     * in the deploy directory.
+     */
+    private static Path getSnapshotFile() {
+        final String file = System.getProperty("robotpreferences.snapshot");
+
+        return file != null ? Paths.get(file)
+                : new File(Filesystem.getDeployDirectory(), PreferencesSnapshot.FILE_NAME).toPath();
     }
 
     /**
      * Returns all of the preferences values in the robot.
      * 
+     * <p>
+     * The values are read from the registry generated at build time. If the
+     * registry is missing (e.g. when debugging on the desktop with a build that did
+     * not run the annotation processor), or the "robotpreferences.scan" system
+     * property is set, the classpath is scanned for them instead.
+     * 
      * @return A stream providing access to all of the preferences values in the
      *         robot.
      */
     private static Stream<Value> getValues() {
-        var config = new ConfigurationBuilder().forPackage("frc.robot").setScanners(FieldsAnnotated);
-        var values = new Reflections(config).get(FieldsAnnotated.with(RobotPreferencesValue.class).as(Field.class));
-
-        return values.stream().filter(f -> Modifier.isStatic(f.getModifiers())).map(f -> {
-            try {
-                return (Value) f.get(null);
-            } catch (IllegalArgumentException e) {
-                e.printStackTrace();
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
+        if (!Boolean.getBoolean("robotpreferences.scan")) {
+            final Value[] values = getRegistryValues();
+
+            if (values != null) {
+                return Arrays.stream(values);
             }
+
+            System.out.println("PREFERENCES REGISTRY NOT FOUND, SCANNING CLASSPATH");
+        }
+
+        return RobotPreferencesScanner.getValues();
+    }
+
+    /**
+     * Returns the preferences values from the registry generated at build time.
+     * 
+     * @return The values, or null if the registry is missing.
+     */
+    static Value[] getRegistryValues() {
+        try {
+            var registry = Class.forName(REGISTRY_CLASS_NAME).asSubclass(IValueRegistry.class);
+
+            return registry.getDeclaredConstructor().newInstance().getValues();
+        } catch (ReflectiveOperationException e) {
             return null;
-        });
+        }
     }
 }
@@ -0,0 +1,63 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018-2019 FIRST. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.stream.Stream;
+
+import org.reflections.Reflections;
+import org.reflections.util.ConfigurationBuilder;
+
+import static org.reflections.scanners.Scanners.*;
+
+import frc.robot.utilities.RobotPreferences.Value;
+
+/**
+ * Finds the preferences values by scanning the classpath. This is only a
+ * fallback for desktop debugging; the robot reads the values from the registry
+ * generated at build time.
+ */
+final class RobotPreferencesScanner {
+
+    private RobotPreferencesScanner() {
+    }
+
+    /**
+     * Returns all of the preferences values in the robot.
+     * 
+     * @return A stream providing access to all of the preferences values in the
+     *         robot.
+     */
+    static Stream<Value> getValues() {
+        try {
+            return scan();
+        } catch (NoClassDefFoundError e) {
+            // The Reflections library is not deployed to the robot, and is not on the
+            // desktop simulation's runtime classpath either.
+            System.out.println("UNABLE TO SCAN CLASSPATH FOR PREFERENCES: " + e.getMessage());
+            return Stream.empty();
+        }
+    }
+
+    private static Stream<Value> scan() {
+        var config = new ConfigurationBuilder().forPackage("frc.robot").setScanners(FieldsAnnotated);
+        var values = new Reflections(config).get(FieldsAnnotated.with(RobotPreferencesValue.class).as(Field.class));
+
+        return values.stream().filter(f -> Modifier.isStatic(f.getModifiers())).map(f -> {
+            try {
+                return (Value) f.get(null);
+            } catch (IllegalArgumentException e) {
+                e.printStackTrace();
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+            }
+            return null;
+        }).filter(v -> v != null);
+    }
+}
@@ -11,7 +11,9 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Target;
 
 /**
- * Add your docs here.
+ * Marks a public static {@link RobotPreferences.Value} field to be managed by
+ * {@link RobotPreferences}. The annotated fields are collected into a registry
+ * at compile time.
  */
 @Target(ElementType.FIELD)
 public @interface RobotPreferencesValue {
@@ -0,0 +1,282 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Threads;
+import frc.robot.utilities.RobotPreferences.BooleanValue;
+import frc.robot.utilities.RobotPreferences.IntegerValue;
+
+/**
+ * Sets the scheduling of the robot threads, so that the control loops do not
+ * compete with NetworkTables, the dashboard, the camera server and the garbage
+ * collector for the roboRIO's two cores.
+ *
+ * <p>
+ * The main robot thread and the odometry thread are raised to real-time
+ * priority and pinned to one core. Background workers, such as the telemetry
+ * flusher and the trajectory generator, are pinned to the other core with a
+ * lower (nice) priority. The priorities are set through WPILib; the cores are
+ * set with taskset and the nice values with renice, using the Linux thread ID
+ * from /proc/thread-self. The same code runs in the desktop simulation on
+ * Linux, although raising a thread to real-time priority there needs the
+ * CAP_SYS_NICE capability. Each change that fails is reported on the console
+ * and the thread keeps running with its current scheduling.
+ *
+ * <p>
+ * Starting a process and waiting for it takes milliseconds, so the real-time
+ * threads never run taskset themselves. They read their own thread ID and pass
+ * it to the "Thread Policy" worker, which pins them and reports the result.
+ *
+ * <p>
+ * To compare the loop jitter (the difference between the time between loops
+ * and the loop period) with and without the policy, the main thread runs with
+ * the default scheduling for the first 10 seconds; the jitter is then reported
+ * to the console, the policy applied, and the jitter reported again 10 seconds
+ * later. Both histograms are also shown on the "Timing" tab.
+ */
+public final class ThreadPolicy {
+
+    @RobotPreferencesValue
+    public static BooleanValue ENABLED = new BooleanValue("ThreadPolicy/Enabled", true);
+    @RobotPreferencesValue
+    public static IntegerValue MAIN_PRIORITY = new IntegerValue("ThreadPolicy/MainPriority", 15);
+    @RobotPreferencesValue
+    public static IntegerValue ODOMETRY_PRIORITY = new IntegerValue("ThreadPolicy/OdometryPriority", 16);
+    @RobotPreferencesValue
+    public static IntegerValue REAL_TIME_CPU = new IntegerValue("ThreadPolicy/RealTimeCpu", 1);
+    @RobotPreferencesValue
+    public static IntegerValue BACKGROUND_CPU = new IntegerValue("ThreadPolicy/BackgroundCpu", 0);
+    @RobotPreferencesValue
+    public static IntegerValue BACKGROUND_NICE = new IntegerValue("ThreadPolicy/BackgroundNice", 10);
+
+    private static final long LOOP_PERIOD_NANOS = (long) (TimedRobot.kDefaultPeriod * 1.0e9);
+    private static final int BASELINE_LOOPS = 500;
+    private static final int COMPARISON_LOOPS = 500;
+    private static final Path THREAD_SELF = Paths.get("/proc/thread-self");
+
+    // The changes that the real-time threads leave to the worker.
+    private static final BlockingQueue<Runnable> pending = new LinkedBlockingQueue<Runnable>();
+    private static Thread worker;
+
+    private static LatencyHistogram defaultJitter;
+    private static LatencyHistogram policyJitter;
+    private static volatile boolean active;
+    private static long lastLoopNanos;
+    private static int loops;
+
+    private ThreadPolicy() {
+    }
+
+    /**
+     * Starts measuring the jitter of the main loop. This should be called once,
+     * from the main robot thread.
+     */
+    public static void start() {
+        if (defaultJitter != null) {
+            return;
+        }
+
+        defaultJitter = LoopTiming.getHistogram("Jitter.default");
+        policyJitter = LoopTiming.getHistogram("Jitter.policy");
+    }
+
+    /**
+     * Records the start of a loop, and applies the policy to the main thread once
+     * the jitter with the default scheduling has been measured. This should be
+     * called at the start of each loop, from the main robot thread.
+     */
+    public static void recordLoop() {
+        if (defaultJitter == null) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+
+        if (lastLoopNanos != 0) {
+            (active ? policyJitter : defaultJitter).record(Math.abs(now - lastLoopNanos - LOOP_PERIOD_NANOS));
+        }
+        lastLoopNanos = now;
+        loops++;
+
+        if (loops == BASELINE_LOOPS) {
+            report("DEFAULT SCHEDULING", defaultJitter);
+
+            if (ENABLED.getValue()) {
+                applyRealTime("Main", MAIN_PRIORITY.getValue());
+                active = true;
+
+                // Don't count the time taken to apply the policy.
+                lastLoopNanos = 0;
+            }
+        } else if (active && loops == BASELINE_LOOPS + COMPARISON_LOOPS) {
+            report("THREAD POLICY", policyJitter);
+        }
+    }
+
+    /**
+     * Returns true once the policy has been applied to the main thread.
+     *
+     * @return Whether the policy is active.
+     */
+    public static boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Wraps the task of a real-time thread, such as a Notifier handler, to apply
+     * the real-time policy to the thread it runs on once the policy is active.
+     * After that, the only cost is a field check on each run.
+     *
+     * @param name     The name of the thread, for reporting.
+     * @param priority The real-time priority, from 1 to 99.
+     * @param task     The task.
+     *
+     * @return The wrapped task.
+     */
+    public static Runnable realTime(String name, IntegerValue priority, Runnable task) {
+        return new Runnable() {
+            private boolean applied;
+
+            @Override
+            public void run() {
+                if (!applied && active) {
+                    applyRealTime(name, priority.getValue());
+                    applied = true;
+                }
+
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * Wraps the body of a background worker thread, to apply the background
+     * policy to the thread when it starts.
+     *
+     * @param name The name of the thread, for reporting.
+     * @param body The body of the thread.
+     *
+     * @return The wrapped body.
+     */
+    public static Runnable background(String name, Runnable body) {
+        return () -> {
+            if (ENABLED.getValue()) {
+                applyBackground(name);
+            }
+
+            body.run();
+        };
+    }
+
+    /**
+     * Raises the current thread to real-time priority, and has the worker pin it
+     * to the real-time core.
+     */
+    private static void applyRealTime(String name, int priority) {
+        final boolean prioritySet = Threads.setCurrentThreadPriority(true, priority);
+        final String threadId = getThreadId();
+        final int cpu = REAL_TIME_CPU.getValue();
+
+        submit(() -> {
+            final boolean pinned = pin(threadId, cpu);
+
+            System.out.println("THREAD POLICY: " + name + " REAL-TIME PRIORITY " + priority
+                    + (prioritySet ? "" : " NOT SET") + ", CPU " + cpu + (pinned ? "" : " NOT SET"));
+        });
+    }
+
+    /**
+     * Lowers the priority of the current thread and pins it to the background
+     * core.
+     */
+    private static void applyBackground(String name) {
+        final String threadId = getThreadId();
+        final boolean pinned = pin(threadId, BACKGROUND_CPU.getValue());
+        final boolean niced = threadId != null
+                && run("renice", "-n", Integer.toString(BACKGROUND_NICE.getValue()), "-p", threadId);
+
+        System.out.println("THREAD POLICY: " + name + " NICE " + BACKGROUND_NICE.getValue() + (niced ? "" : " NOT SET")
+                + ", CPU " + BACKGROUND_CPU.getValue() + (pinned ? "" : " NOT SET"));
+    }
+
+    /**
+     * Pins a thread to a core.
+     */
+    private static boolean pin(String threadId, int cpu) {
+        return threadId != null && run("taskset", "-p", "-c", Integer.toString(cpu), threadId);
+    }
+
+    /**
+     * Passes a change to the worker, starting it if needed.
+     */
+    private static synchronized void submit(Runnable change) {
+        if (worker == null) {
+            worker = new Thread(background("Thread Policy", ThreadPolicy::work), "Thread Policy");
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        pending.add(change);
+    }
+
+    /**
+     * Makes the changes passed to the worker, in order.
+     */
+    private static void work() {
+        try {
+            while (true) {
+                pending.take().run();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the Linux thread ID of the current thread, or null if it is not
+     * available (e.g. not on Linux).
+     */
+    private static String getThreadId() {
+        try {
+            return Files.readSymbolicLink(THREAD_SELF).getFileName().toString();
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs a command, returning true if it succeeded.
+     */
+    private static boolean run(String... command) {
+        try {
+            final Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void report(String scheduling, LatencyHistogram histogram) {
+        System.out.printf("LOOP JITTER WITH %s: P50 %.2f MS, P99 %.2f MS, MAX %.2f MS (%d LOOPS)%n", scheduling,
+                histogram.getPercentile(0.50), histogram.getPercentile(0.99), histogram.getMax(),
+                histogram.getCount());
+    }
+}
@@ -0,0 +1,99 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2018-2019 FIRST. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands the latest of a stream of preallocated objects from one writer thread
+ * to one reader thread without locking or allocating.
+ *
+ * <p>
+ * The writer fills the back buffer and publishes it, which swaps it with the
+ * middle buffer. The reader takes the middle buffer (if a new one has been
+ * published) by swapping it with its front buffer. Neither side ever waits for
+ * the other. If the writer publishes faster than the reader takes, the older
+ * unread buffers are dropped rather than queued.
+ *
+ * @param <T> The buffer type.
+ */
+public class TripleBuffer<T> {
+
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final Object[] buffers = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+
+    /**
+     * Constructs an instance of this class.
+     *
+     * @param factory Creates each of the three buffers.
+     */
+    public TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = factory.get();
+        }
+    }
+
+    /**
+     * Returns the buffer the writer fills in. Must only be called from the writer
+     * thread.
+     *
+     * @return The back buffer.
+     */
+    @SuppressWarnings("unchecked")
+    public T getBackBuffer() {
+        return (T) buffers[back];
+    }
+
+    /**
+     * Publishes the back buffer to the reader. Must only be called from the writer
+     * thread.
+     *
+     * @return True if the previously published buffer was never taken by the
+     *         reader, i.e. it was dropped.
+     */
+    public boolean publish() {
+        final int previous = middle.getAndSet(back | FRESH);
+
+        back = previous & INDEX_MASK;
+
+        return (previous & FRESH) != 0;
+    }
+
+    /**
+     * Returns the buffer the reader is working on. Must only be called from the
+     * reader thread.
+     *
+     * @return The front buffer.
+     */
+    @SuppressWarnings("unchecked")
+    public T getFrontBuffer() {
+        return (T) buffers[front];
+    }
+
+    /**
+     * Takes the most recently published buffer as the front buffer, if there is
+     * one the reader has not seen. Must only be called from the reader thread.
+     *
+     * @return True if the front buffer was replaced by a newly published one.
+     */
+    public boolean update() {
+        if ((middle.get() & FRESH) == 0) {
+            return false;
+        }
+
+        front = middle.getAndSet(front) & INDEX_MASK;
+
+        return true;
+    }
+}
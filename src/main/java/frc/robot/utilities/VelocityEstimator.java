@@ -0,0 +1,244 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+/**
+ * Estimates the velocity of an encoder from its recent distance samples.
+ *
+ * <p>
+ * The samples are kept in primitive arrays used as a ring buffer, so adding a
+ * sample does not allocate. Two filters are supported:
+ * <ul>
+ * <li>{@link Filter#LEAST_SQUARES} fits a line to the samples in the window.
+ * The sums for the fit are updated as samples enter and leave the window, so
+ * each update is O(1). They are recomputed from the window now and then to
+ * keep rounding errors from building up.</li>
+ * <li>{@link Filter#MEDIAN} takes the median of the velocities between
+ * successive samples in the window, which rejects single bad samples. It keeps
+ * the velocities sorted, so each update is O(window).</li>
+ * </ul>
+ *
+ * <p>
+ * One thread adds samples; the estimate may be read from any thread.
+ */
+public class VelocityEstimator {
+
+    /**
+     * The filter used to estimate the velocity.
+     */
+    public enum Filter {
+        LEAST_SQUARES, MEDIAN
+    }
+
+    // The number of samples between recomputing the least-squares sums.
+    private static final int RECOMPUTE_INTERVAL = 256;
+
+    private final Filter filter;
+    private final int window;
+
+    // The samples in the window, oldest at next when the window is full.
+    private final double[] times;
+    private final double[] distances;
+    private int count;
+    private int next;
+
+    // The least-squares sums, relative to the base sample.
+    private double baseTime;
+    private double baseDistance;
+    private double sumT;
+    private double sumD;
+    private double sumTT;
+    private double sumTD;
+    private int updatesSinceRecompute;
+
+    // The velocities between successive samples, in order of arrival and sorted.
+    private final double[] rates;
+    private final double[] sortedRates;
+    private int rateCount;
+    private int nextRate;
+
+    private volatile double velocity;
+
+    /**
+     * Constructs an instance of this class.
+     * 
+     * @param filter The filter used to estimate the velocity.
+     * @param window The number of samples the velocity is estimated from. It
+     *               must be at least two.
+     */
+    public VelocityEstimator(Filter filter, int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("window must be at least two");
+        }
+
+        this.filter = filter;
+        this.window = window;
+        this.times = new double[window];
+        this.distances = new double[window];
+        this.rates = new double[window - 1];
+        this.sortedRates = new double[window - 1];
+    }
+
+    /**
+     * Adds a distance sample and updates the velocity estimate. Samples that are
+     * not newer than the last sample are ignored.
+     * 
+     * @param time     The time the distance was read, in seconds.
+     * @param distance The distance, in meters.
+     */
+    public void add(double time, double distance) {
+        final int last = next == 0 ? window - 1 : next - 1;
+
+        if (count > 0 && time <= times[last]) {
+            return;
+        }
+
+        if (filter == Filter.MEDIAN) {
+            if (count > 0) {
+                addRate((distance - distances[last]) / (time - times[last]));
+            }
+        } else {
+            if (count == 0) {
+                baseTime = time;
+                baseDistance = distance;
+            } else if (count == window) {
+                removeFromSums(times[next], distances[next]);
+            }
+            addToSums(time, distance);
+        }
+
+        times[next] = time;
+        distances[next] = distance;
+        next = next + 1 == window ? 0 : next + 1;
+        if (count < window) {
+            count++;
+        }
+
+        if (filter == Filter.MEDIAN) {
+            velocity = getMedianRate();
+        } else {
+            if (++updatesSinceRecompute >= RECOMPUTE_INTERVAL) {
+                recomputeSums();
+            }
+            velocity = getLeastSquaresRate();
+        }
+    }
+
+    /**
+     * Clears the samples, e.g. when the encoder is reset. The estimate is zero
+     * until the next two samples have been added.
+     */
+    public void clear() {
+        count = 0;
+        next = 0;
+        sumT = 0.0;
+        sumD = 0.0;
+        sumTT = 0.0;
+        sumTD = 0.0;
+        updatesSinceRecompute = 0;
+        rateCount = 0;
+        nextRate = 0;
+        velocity = 0.0;
+    }
+
+    /**
+     * Returns the estimated velocity.
+     * 
+     * @return The velocity, in meters per second.
+     */
+    public double getVelocity() {
+        return velocity;
+    }
+
+    private void addToSums(double time, double distance) {
+        final double t = time - baseTime;
+        final double d = distance - baseDistance;
+
+        sumT += t;
+        sumD += d;
+        sumTT += t * t;
+        sumTD += t * d;
+    }
+
+    private void removeFromSums(double time, double distance) {
+        final double t = time - baseTime;
+        final double d = distance - baseDistance;
+
+        sumT -= t;
+        sumD -= d;
+        sumTT -= t * t;
+        sumTD -= t * d;
+    }
+
+    /**
+     * Moves the base to the oldest sample and recomputes the sums from the window.
+     */
+    private void recomputeSums() {
+        final int oldest = count < window ? 0 : next;
+
+        baseTime = times[oldest];
+        baseDistance = distances[oldest];
+        sumT = 0.0;
+        sumD = 0.0;
+        sumTT = 0.0;
+        sumTD = 0.0;
+
+        for (int i = 0; i < count; i++) {
+            addToSums(times[i], distances[i]);
+        }
+
+        updatesSinceRecompute = 0;
+    }
+
+    private double getLeastSquaresRate() {
+        final double denominator = count * sumTT - sumT * sumT;
+
+        return count > 1 && denominator > 0.0 ? (count * sumTD - sumT * sumD) / denominator : 0.0;
+    }
+
+    /**
+     * Adds a velocity to the window, replacing the oldest one if the window is
+     * full, and keeps the sorted velocities in order.
+     */
+    private void addRate(double rate) {
+        int index;
+
+        if (rateCount == rates.length) {
+            // Remove the oldest velocity from the sorted velocities.
+            final double oldest = rates[nextRate];
+
+            index = 0;
+            while (index < rateCount - 1 && sortedRates[index] != oldest) {
+                index++;
+            }
+            System.arraycopy(sortedRates, index + 1, sortedRates, index, rateCount - index - 1);
+            rateCount--;
+        }
+
+        index = rateCount;
+        while (index > 0 && sortedRates[index - 1] > rate) {
+            sortedRates[index] = sortedRates[index - 1];
+            index--;
+        }
+        sortedRates[index] = rate;
+        rateCount++;
+
+        rates[nextRate] = rate;
+        nextRate = nextRate + 1 == rates.length ? 0 : nextRate + 1;
+    }
+
+    private double getMedianRate() {
+        if (rateCount == 0) {
+            return 0.0;
+        }
+
+        final int middle = rateCount / 2;
+
+        return (rateCount & 1) != 0 ? sortedRates[middle] : 0.5 * (sortedRates[middle - 1] + sortedRates[middle]);
+    }
+}
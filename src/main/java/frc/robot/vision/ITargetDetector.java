@@ -0,0 +1,22 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.vision;
+
+/**
+ * An interface implemented by the stage of the vision pipeline that decodes a
+ * camera frame and finds the targets in it.
+ */
+public interface ITargetDetector {
+    /**
+     * Called on the vision processing thread with the latest camera frame. The
+     * frame is reused once this returns, so it must not be kept.
+     *
+     * @param frame The camera frame.
+     */
+    public void processFrame(VisionFrame frame);
+}
@@ -0,0 +1,192 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleSupplier;
+
+import frc.robot.utilities.TripleBuffer;
+
+/**
+ * Pulls camera frames from an MJPEG stream on a background thread and passes
+ * the latest one to a target detector at a fixed rate on a second thread.
+ *
+ * <p>
+ * The ingest thread reads every frame of the stream into one of three
+ * preallocated frames, reconnecting if the stream is lost. The processing
+ * thread takes only the newest frame each period; frames that arrive in
+ * between are dropped rather than queued, so the detector never falls behind
+ * the camera.
+ */
+public class MjpegIngest implements AutoCloseable {
+
+    private static final int TIMEOUT_MS = 2000;
+    private static final long RECONNECT_DELAY_NANOS = 1_000_000_000L;
+
+    private final URI uri;
+    private final ITargetDetector detector;
+    private final long processingPeriodNanos;
+    private final DoubleSupplier clock;
+    private final TripleBuffer<VisionFrame> frames;
+    private final Thread ingestThread;
+    private final Thread processingThread;
+
+    private volatile boolean running;
+    private volatile MjpegStreamReader reader;
+    private volatile long framesReceived;
+    private volatile long framesProcessed;
+    private volatile long framesDropped;
+
+    /**
+     * Constructs an instance of this class.
+     *
+     * @param uri            The URI of the MJPEG stream.
+     * @param detector       The detector the latest frame is passed to.
+     * @param processingRate The rate at which frames are passed to the detector,
+     *                       in Hz.
+     * @param maxFrameSize   The largest frame that can be received, in bytes.
+     * @param clock          Returns the current time in seconds, used to stamp the
+     *                       frames (normally the FPGA time).
+     */
+    public MjpegIngest(URI uri, ITargetDetector detector, double processingRate, int maxFrameSize,
+            DoubleSupplier clock) {
+        this.uri = uri;
+        this.detector = detector;
+        this.processingPeriodNanos = (long) (1.0e9 / processingRate);
+        this.clock = clock;
+        this.frames = new TripleBuffer<VisionFrame>(() -> new VisionFrame(maxFrameSize));
+
+        this.ingestThread = new Thread(this::ingest, "MJPEG Ingest");
+        this.ingestThread.setDaemon(true);
+        this.processingThread = new Thread(this::process, "Vision Processing");
+        this.processingThread.setDaemon(true);
+    }
+
+    /**
+     * Starts the ingest and processing threads.
+     */
+    public void start() {
+        running = true;
+        ingestThread.start();
+        processingThread.start();
+    }
+
+    /**
+     * Stops the ingest and processing threads.
+     */
+    @Override
+    public void close() {
+        running = false;
+
+        final MjpegStreamReader current = reader;
+
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // Closing only unblocks the ingest thread; there is nothing to recover.
+            }
+        }
+
+        ingestThread.interrupt();
+        processingThread.interrupt();
+    }
+
+    /**
+     * Returns the number of frames received from the stream.
+     *
+     * @return The number of frames.
+     */
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+
+    /**
+     * Returns the number of frames passed to the detector.
+     *
+     * @return The number of frames.
+     */
+    public long getFramesProcessed() {
+        return framesProcessed;
+    }
+
+    /**
+     * Returns the number of frames that were replaced by a newer one before the
+     * detector could take them.
+     *
+     * @return The number of frames.
+     */
+    public long getFramesDropped() {
+        return framesDropped;
+    }
+
+    /**
+     * The body of the ingest thread.
+     */
+    private void ingest() {
+        long sequence = 0;
+
+        while (running) {
+            try (MjpegStreamReader current = MjpegStreamReader.open(uri, TIMEOUT_MS)) {
+                reader = current;
+
+                while (running) {
+                    final VisionFrame frame = frames.getBackBuffer();
+
+                    if (!current.readFrame(frame.getData())) {
+                        break;
+                    }
+
+                    frame.setReceived(++sequence, clock.getAsDouble());
+
+                    if (frames.publish()) {
+                        framesDropped++;
+                    }
+                    framesReceived++;
+                }
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("MJPEG STREAM LOST: " + e.getMessage());
+                }
+            } finally {
+                reader = null;
+            }
+
+            if (running) {
+                LockSupport.parkNanos(RECONNECT_DELAY_NANOS);
+            }
+        }
+    }
+
+    /**
+     * The body of the processing thread.
+     */
+    private void process() {
+        long nextTime = System.nanoTime();
+
+        while (running) {
+            if (frames.update()) {
+                detector.processFrame(frames.getFrontBuffer());
+                framesProcessed++;
+            }
+
+            nextTime += processingPeriodNanos;
+
+            final long delay = nextTime - System.nanoTime();
+
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            } else {
+                // Running behind; don't try to catch up.
+                nextTime = System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.vision;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the JPEG frames out of an MJPEG (multipart/x-mixed-replace) HTTP
+ * stream, such as the one served by the Raspberry Pi.
+ *
+ * <p>
+ * The stream is read through a direct buffer and each frame is copied into a
+ * buffer supplied by the caller, so reading frames does not allocate.
+ */
+public class MjpegStreamReader implements Closeable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_LENGTH = 256;
+    private static final byte[] CONTENT_LENGTH = "content-length:".getBytes(StandardCharsets.US_ASCII);
+
+    private final ReadableByteChannel channel;
+    private final Closeable connection;
+    private final ByteBuffer input = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final byte[] line = new byte[MAX_LINE_LENGTH];
+    private int lineLength;
+
+    /**
+     * Constructs an instance of this class that reads the parts of a multipart
+     * stream. The HTTP response headers must already have been read.
+     *
+     * @param channel    The channel the stream is read from.
+     * @param connection Closed when this reader is closed.
+     */
+    public MjpegStreamReader(ReadableByteChannel channel, Closeable connection) {
+        this.channel = channel;
+        this.connection = connection;
+        this.input.flip();
+    }
+
+    /**
+     * Connects to an MJPEG stream over HTTP.
+     *
+     * @param uri     The URI of the stream, e.g.
+     *                http://frcvision.local:1181/stream.mjpg.
+     * @param timeout The connect and read timeout, in milliseconds.
+     *
+     * @return A reader positioned at the first part of the stream.
+     *
+     * @throws IOException If the connection fails or the server does not return
+     *                     the stream.
+     */
+    public static MjpegStreamReader open(URI uri, int timeout) throws IOException {
+        final Socket socket = new Socket();
+
+        try {
+            final String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            final String request = "GET " + path + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "")
+                    + " HTTP/1.0\r\nHost: " + uri.getHost() + "\r\n\r\n";
+
+            socket.connect(new InetSocketAddress(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : 80), timeout);
+            socket.setSoTimeout(timeout);
+
+            final OutputStream output = socket.getOutputStream();
+
+            output.write(request.getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+
+            final MjpegStreamReader reader = new MjpegStreamReader(Channels.newChannel(socket.getInputStream()),
+                    socket);
+
+            reader.readResponseHeaders();
+
+            return reader;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next frame of the stream. Frames larger than the buffer are
+     * skipped.
+     *
+     * @param frame The buffer the frame is read into. On return it holds the frame
+     *              between its position and limit.
+     *
+     * @return False if the end of the stream was reached.
+     *
+     * @throws IOException If reading the stream fails.
+     */
+    public boolean readFrame(ByteBuffer frame) throws IOException {
+        while (true) {
+            // Skip to the boundary that starts the next part.
+            do {
+                if (!readLine()) {
+                    return false;
+                }
+            } while (lineLength < 2 || line[0] != '-' || line[1] != '-');
+
+            // Read the part headers.
+            int contentLength = -1;
+
+            while (true) {
+                if (!readLine()) {
+                    return false;
+                }
+                if (lineLength == 0) {
+                    break;
+                }
+                if (isHeader(CONTENT_LENGTH)) {
+                    contentLength = parseHeaderValue(CONTENT_LENGTH.length);
+                }
+            }
+
+            frame.clear();
+
+            final boolean complete = contentLength >= 0 ? readContent(frame, contentLength)
+                    : readUntilEndOfImage(frame);
+
+            frame.flip();
+
+            if (complete) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        connection.close();
+    }
+
+    /**
+     * Reads the HTTP status line and headers, checking that the request succeeded.
+     */
+    private void readResponseHeaders() throws IOException {
+        if (!readLine() || lineLength < 12 || line[9] != '2' || line[10] != '0' || line[11] != '0') {
+            throw new IOException("MJPEG server did not return the stream: "
+                    + new String(line, 0, lineLength, StandardCharsets.US_ASCII));
+        }
+
+        do {
+            if (!readLine()) {
+                throw new IOException("MJPEG stream ended in the response headers");
+            }
+        } while (lineLength > 0);
+    }
+
+    /**
+     * Reads a part body of known length into the frame, or skips it if it does not
+     * fit.
+     *
+     * @return True if the body was read into the frame.
+     */
+    private boolean readContent(ByteBuffer frame, int length) throws IOException {
+        final boolean fits = length <= frame.capacity();
+        int remaining = length;
+
+        while (remaining > 0) {
+            if (!input.hasRemaining() && !fill()) {
+                throw new IOException("MJPEG stream ended in a frame");
+            }
+
+            final int chunk = Math.min(remaining, input.remaining());
+
+            if (fits) {
+                final int limit = input.limit();
+
+                input.limit(input.position() + chunk);
+                frame.put(input);
+                input.limit(limit);
+            } else {
+                input.position(input.position() + chunk);
+            }
+            remaining -= chunk;
+        }
+
+        return fits;
+    }
+
+    /**
+     * Reads a part body of unknown length into the frame, up to and including the
+     * JPEG end-of-image marker.
+     *
+     * @return True if the image was read into the frame.
+     */
+    private boolean readUntilEndOfImage(ByteBuffer frame) throws IOException {
+        boolean fits = true;
+        byte previous = 0;
+
+        while (true) {
+            if (!input.hasRemaining() && !fill()) {
+                throw new IOException("MJPEG stream ended in a frame");
+            }
+
+            final byte current = input.get();
+
+            if (frame.hasRemaining()) {
+                frame.put(current);
+            } else {
+                fits = false;
+            }
+
+            if (previous == (byte) 0xFF && current == (byte) 0xD9) {
+                return fits;
+            }
+            previous = current;
+        }
+    }
+
+    /**
+     * Reads a line into the line buffer, without the line terminator. Lines longer
+     * than the buffer are truncated.
+     *
+     * @return False if the end of the stream was reached.
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+
+        while (true) {
+            if (!input.hasRemaining() && !fill()) {
+                return false;
+            }
+
+            final byte current = input.get();
+
+            if (current == '\n') {
+                if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return true;
+            }
+            if (lineLength < line.length) {
+                line[lineLength++] = current;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the line is the specified header, ignoring case.
+     */
+    private boolean isHeader(byte[] name) {
+        if (lineLength < name.length) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length; i++) {
+            if (Character.toLowerCase(line[i]) != name[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses the integer value of the header in the line.
+     */
+    private int parseHeaderValue(int start) {
+        int value = 0;
+
+        for (int i = start; i < lineLength; i++) {
+            if (line[i] >= '0' && line[i] <= '9') {
+                value = value * 10 + (line[i] - '0');
+            } else if (line[i] != ' ' && line[i] != '\t') {
+                break;
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Reads more of the stream into the input buffer.
+     *
+     * @return False if the end of the stream was reached.
+     */
+    private boolean fill() throws IOException {
+        int count;
+
+        input.compact();
+
+        try {
+            do {
+                count = channel.read(input);
+            } while (count == 0);
+        } finally {
+            input.flip();
+        }
+
+        return count > 0;
+    }
+}
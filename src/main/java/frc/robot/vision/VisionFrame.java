@@ -0,0 +1,61 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.vision;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A JPEG-encoded camera frame held in a reusable direct buffer.
+ */
+public class VisionFrame {
+
+    private final ByteBuffer data;
+    private long sequence;
+    private double timestamp;
+
+    /**
+     * Constructs an instance of this class.
+     *
+     * @param capacity The largest frame that can be held, in bytes.
+     */
+    public VisionFrame(int capacity) {
+        this.data = ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Returns the JPEG data of the frame, between the buffer's position and limit.
+     *
+     * @return The frame data.
+     */
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    /**
+     * Returns the sequence number of the frame in the stream.
+     *
+     * @return The sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the time at which the frame was received.
+     *
+     * @return The FPGA time, in seconds.
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+
+    void setReceived(long sequence, double timestamp) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+    }
+}
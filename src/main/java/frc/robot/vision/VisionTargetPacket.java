@@ -0,0 +1,102 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.vision;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The fixed binary layout of the UDP packet that carries vision targets from
+ * the coprocessor. All fields are big-endian.
+ *
+ * <pre>
+ * offset  size  field
+ *      0     2  magic (0x5654, "VT")
+ *      2     1  version (1)
+ *      3     1  target count (0 to 8)
+ *      4     4  frame sequence number
+ *      8     8  frame capture time, in microseconds
+ *     16    16  per target: yaw, pitch (degrees), distance (meters), area
+ *               (fraction of the frame), as 32-bit floats
+ * </pre>
+ */
+public final class VisionTargetPacket {
+
+    public static final short MAGIC = 0x5654;
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int TARGET_SIZE = 16;
+    public static final int MAX_SIZE = HEADER_SIZE + VisionTargets.MAX_TARGETS * TARGET_SIZE;
+
+    private VisionTargetPacket() {
+    }
+
+    /**
+     * Encodes the targets into a packet.
+     * 
+     * @param targets The targets.
+     * @param packet  The buffer the packet is written to. On return it holds the
+     *                packet between its position and limit.
+     */
+    public static void encode(VisionTargets targets, ByteBuffer packet) {
+        packet.clear();
+        packet.putShort(MAGIC);
+        packet.put(VERSION);
+        packet.put((byte) targets.count);
+        packet.putInt(targets.sequence);
+        packet.putLong(targets.captureTime);
+
+        for (int i = 0; i < targets.count; i++) {
+            packet.putFloat(targets.yaw[i]);
+            packet.putFloat(targets.pitch[i]);
+            packet.putFloat(targets.distance[i]);
+            packet.putFloat(targets.area[i]);
+        }
+
+        packet.flip();
+    }
+
+    /**
+     * Decodes a packet into the targets.
+     * 
+     * @param packet  The packet, between the buffer's position and limit.
+     * @param targets The targets to fill in.
+     * 
+     * @return False if the packet is malformed; the targets are then left in an
+     *         unspecified state.
+     */
+    public static boolean decode(ByteBuffer packet, VisionTargets targets) {
+        if (packet.remaining() < HEADER_SIZE) {
+            return false;
+        }
+
+        final int start = packet.position();
+
+        if (packet.getShort(start) != MAGIC || packet.get(start + 2) != VERSION) {
+            return false;
+        }
+
+        final int count = packet.get(start + 3) & 0xFF;
+
+        if (count > VisionTargets.MAX_TARGETS || packet.remaining() < HEADER_SIZE + count * TARGET_SIZE) {
+            return false;
+        }
+
+        targets.count = count;
+        targets.sequence = packet.getInt(start + 4);
+        targets.captureTime = packet.getLong(start + 8);
+
+        for (int i = 0, offset = start + HEADER_SIZE; i < count; i++, offset += TARGET_SIZE) {
+            targets.yaw[i] = packet.getFloat(offset);
+            targets.pitch[i] = packet.getFloat(offset + 4);
+            targets.distance[i] = packet.getFloat(offset + 8);
+            targets.area[i] = packet.getFloat(offset + 12);
+        }
+
+        return true;
+    }
+}
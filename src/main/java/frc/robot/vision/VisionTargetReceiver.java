@@ -0,0 +1,225 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.function.DoubleSupplier;
+
+import frc.robot.utilities.TripleBuffer;
+
+/**
+ * Receives vision target packets from the coprocessor on a UDP port and hands
+ * the newest to the main robot thread.
+ *
+ * <p>
+ * Packets are read into a direct buffer and decoded into preallocated targets
+ * on a dedicated thread, so receiving does not allocate. Each packet that is
+ * newer than the last is published through a triple buffer; the main thread
+ * takes the newest in {@link #update()} without waiting. Packets that arrive
+ * out of order are discarded and gaps in the sequence are counted as dropped.
+ *
+ * <p>
+ * If the coprocessor restarts, its sequence starts again from the beginning.
+ * A packet that is far behind the last one, or that arrives after a long
+ * silence, is taken as such a restart rather than as out of order, and the
+ * receiver follows the new sequence.
+ */
+public class VisionTargetReceiver implements AutoCloseable {
+
+    // Far more packets than can be reordered in flight at 30 frames per second.
+    private static final int RESET_SEQUENCE_DELTA = 100;
+    private static final double RESET_GAP_SECONDS = 2.0;
+
+    private final DatagramChannel channel;
+    private final DoubleSupplier clock;
+    private final ByteBuffer packet = ByteBuffer.allocateDirect(VisionTargetPacket.MAX_SIZE);
+    private final TripleBuffer<VisionTargets> targets = new TripleBuffer<VisionTargets>(VisionTargets::new);
+    private final Thread thread;
+
+    private volatile boolean running;
+    private boolean received;
+    private int lastSequence;
+    private double lastReceiveTime;
+    private volatile long packetsReceived;
+    private volatile long packetsDropped;
+    private volatile long packetsOutOfOrder;
+    private volatile long packetsMalformed;
+    private volatile long senderResets;
+
+    /**
+     * Constructs an instance of this class.
+     *
+     * @param port  The UDP port to listen on.
+     * @param clock Returns the current time in seconds, used to stamp the targets
+     *              (normally the FPGA time).
+     *
+     * @throws IOException If the port cannot be bound.
+     */
+    public VisionTargetReceiver(int port, DoubleSupplier clock) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.channel.bind(new InetSocketAddress(port));
+        this.clock = clock;
+
+        this.thread = new Thread(this::receive, "Vision Targets");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Returns the port the receiver is bound to.
+     *
+     * @return The UDP port.
+     *
+     * @throws IOException If the channel has been closed.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Starts the receiver thread.
+     */
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stops the receiver thread and closes the port.
+     */
+    @Override
+    public void close() {
+        running = false;
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Closing only unblocks the receiver thread; there is nothing to recover.
+        }
+    }
+
+    /**
+     * Takes the newest targets received, if any have arrived since the last call.
+     * Must only be called from the main robot thread.
+     *
+     * @return True if new targets were taken.
+     */
+    public boolean update() {
+        return targets.update();
+    }
+
+    /**
+     * Returns the targets taken by the last call to {@link #update()}. They are
+     * reused once {@link #update()} is called again, so they must not be kept.
+     * Must only be called from the main robot thread.
+     *
+     * @return The targets.
+     */
+    public VisionTargets getTargets() {
+        return targets.getFrontBuffer();
+    }
+
+    /**
+     * Returns the number of valid packets received.
+     *
+     * @return The number of packets.
+     */
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    /**
+     * Returns the number of packets missing from the sequence.
+     *
+     * @return The number of packets.
+     */
+    public long getPacketsDropped() {
+        return packetsDropped;
+    }
+
+    /**
+     * Returns the number of packets discarded because a newer one had already
+     * been received.
+     *
+     * @return The number of packets.
+     */
+    public long getPacketsOutOfOrder() {
+        return packetsOutOfOrder;
+    }
+
+    /**
+     * Returns the number of packets discarded because they could not be decoded.
+     *
+     * @return The number of packets.
+     */
+    public long getPacketsMalformed() {
+        return packetsMalformed;
+    }
+
+    /**
+     * Returns the number of times the sender's sequence started again, e.g.
+     * because the coprocessor restarted.
+     *
+     * @return The number of restarts.
+     */
+    public long getSenderResets() {
+        return senderResets;
+    }
+
+    /**
+     * The body of the receiver thread.
+     */
+    private void receive() {
+        while (running) {
+            try {
+                packet.clear();
+                channel.receive(packet);
+                packet.flip();
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                System.out.println("VISION TARGET RECEIVE FAILED: " + e.getMessage());
+                continue;
+            }
+
+            final VisionTargets back = targets.getBackBuffer();
+
+            if (!VisionTargetPacket.decode(packet, back)) {
+                packetsMalformed++;
+                continue;
+            }
+
+            // Compare as a signed difference so the sequence number can wrap.
+            final int delta = back.sequence - lastSequence;
+            final double now = clock.getAsDouble();
+
+            if (received) {
+                if (delta <= 0) {
+                    if (delta >= -RESET_SEQUENCE_DELTA && now - lastReceiveTime <= RESET_GAP_SECONDS) {
+                        packetsOutOfOrder++;
+                        continue;
+                    }
+                    senderResets++;
+                } else if (delta > 1) {
+                    packetsDropped += delta - 1;
+                }
+            }
+
+            received = true;
+            lastSequence = back.sequence;
+            lastReceiveTime = now;
+            back.receiveTimestamp = now;
+
+            targets.publish();
+            packetsReceived++;
+        }
+    }
+}
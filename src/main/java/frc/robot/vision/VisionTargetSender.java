@@ -0,0 +1,81 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends vision target packets over UDP. This is the robot side's stand-in for
+ * the coprocessor, used to exercise {@link VisionTargetReceiver} over loopback
+ * in simulation.
+ */
+public class VisionTargetSender implements AutoCloseable {
+
+    private final DatagramChannel channel;
+    private final ByteBuffer packet = ByteBuffer.allocateDirect(VisionTargetPacket.MAX_SIZE);
+
+    /**
+     * Constructs an instance of this class.
+     *
+     * @param host The host to send to.
+     * @param port The UDP port to send to.
+     *
+     * @throws IOException If the channel cannot be opened.
+     */
+    public VisionTargetSender(String host, int port) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.channel.connect(new InetSocketAddress(host, port));
+    }
+
+    /**
+     * Sends targets.
+     *
+     * @param targets The targets.
+     *
+     * @throws IOException If the packet cannot be sent.
+     */
+    public void send(VisionTargets targets) throws IOException {
+        VisionTargetPacket.encode(targets, packet);
+        channel.write(packet);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Sends a target sweeping back and forth across the frame at 30 frames per
+     * second, stamped with the local clock.
+     *
+     * @param args The host and port to send to; localhost and 5800 by default.
+     *
+     * @throws IOException If the packets cannot be sent.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final String host = args.length > 0 ? args[0] : "localhost";
+        final int port = args.length > 1 ? Integer.parseInt(args[1]) : 5800;
+        final VisionTargets targets = new VisionTargets();
+
+        try (VisionTargetSender sender = new VisionTargetSender(host, port)) {
+            for (int sequence = 1;; sequence++) {
+                final double yaw = 20.0 * Math.sin(sequence / 30.0);
+
+                targets.setFrame(sequence, TimeUnit.NANOSECONDS.toMicros(System.nanoTime()));
+                targets.addTarget(yaw, 5.0, 3.0, 0.02);
+                sender.send(targets);
+
+                Thread.sleep(33);
+            }
+        }
+    }
+}
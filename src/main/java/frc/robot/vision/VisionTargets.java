@@ -0,0 +1,145 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.vision;
+
+/**
+ * The targets found in one camera frame by the vision coprocessor. Instances
+ * are preallocated and reused, so they hold a fixed maximum number of targets.
+ */
+public class VisionTargets {
+
+    /** The largest number of targets that can be sent for one frame. */
+    public static final int MAX_TARGETS = 8;
+
+    int sequence;
+    long captureTime;
+    double receiveTimestamp;
+    int count;
+    final float[] yaw = new float[MAX_TARGETS];
+    final float[] pitch = new float[MAX_TARGETS];
+    final float[] distance = new float[MAX_TARGETS];
+    final float[] area = new float[MAX_TARGETS];
+
+    /**
+     * Returns the sequence number of the frame.
+     * 
+     * @return The sequence number.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the time at which the frame was captured, as sent by the
+     * coprocessor.
+     * 
+     * @return The capture time, in microseconds.
+     */
+    public long getCaptureTime() {
+        return captureTime;
+    }
+
+    /**
+     * Returns the time at which the targets were received.
+     * 
+     * @return The FPGA time, in seconds.
+     */
+    public double getReceiveTimestamp() {
+        return receiveTimestamp;
+    }
+
+    /**
+     * Returns the number of targets found.
+     * 
+     * @return The number of targets.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the horizontal angle from the camera to a target.
+     * 
+     * @param target The index of the target.
+     * 
+     * @return The yaw, in degrees.
+     */
+    public double getYaw(int target) {
+        return yaw[target];
+    }
+
+    /**
+     * Returns the vertical angle from the camera to a target.
+     * 
+     * @param target The index of the target.
+     * 
+     * @return The pitch, in degrees.
+     */
+    public double getPitch(int target) {
+        return pitch[target];
+    }
+
+    /**
+     * Returns the distance from the camera to a target.
+     * 
+     * @param target The index of the target.
+     * 
+     * @return The distance, in meters.
+     */
+    public double getDistance(int target) {
+        return distance[target];
+    }
+
+    /**
+     * Returns the area of a target in the frame.
+     * 
+     * @param target The index of the target.
+     * 
+     * @return The area, as a fraction of the frame.
+     */
+    public double getArea(int target) {
+        return area[target];
+    }
+
+    /**
+     * Sets the frame information. Used to build the targets to send.
+     * 
+     * @param sequence    The sequence number of the frame.
+     * @param captureTime The time at which the frame was captured, in
+     *                    microseconds.
+     */
+    public void setFrame(int sequence, long captureTime) {
+        this.sequence = sequence;
+        this.captureTime = captureTime;
+        this.count = 0;
+    }
+
+    /**
+     * Adds a target. Used to build the targets to send.
+     * 
+     * @param yaw      The horizontal angle to the target, in degrees.
+     * @param pitch    The vertical angle to the target, in degrees.
+     * @param distance The distance to the target, in meters.
+     * @param area     The area of the target, as a fraction of the frame.
+     * 
+     * @return False if there is no room for the target.
+     */
+    public boolean addTarget(double yaw, double pitch, double distance, double area) {
+        if (count >= MAX_TARGETS) {
+            return false;
+        }
+
+        this.yaw[count] = (float) yaw;
+        this.pitch[count] = (float) pitch;
+        this.distance[count] = (float) distance;
+        this.area[count] = (float) area;
+        count++;
+
+        return true;
+    }
+}
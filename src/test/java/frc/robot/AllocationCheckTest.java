@@ -0,0 +1,138 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.telemetry.TelemetryLog;
+import frc.robot.telemetry.TelemetryRecord;
+import frc.robot.utilities.AllocationTracker;
+
+/**
+ * Drives the robot code through a scripted teleop period on the desktop, and
+ * checks that the subsystems and commands do not allocate once they have
+ * warmed up. It runs with the other tests; "gradlew test
+ * -PallocationThreshold=bytes" allows some bytes per loop.
+ *
+ * <p>
+ * The script sweeps the joysticks and the Xbox controller sticks through slow
+ * sine waves. The encoders and gyro follow the motor outputs through a crude
+ * model of the drivetrain, so that the odometry and the velocity estimators see
+ * changing values. The clock only moves when the test steps it, so the test
+ * runs as fast as the code allows.
+ *
+ * <p>
+ * The allocations are counted around each subsystem periodic() and command
+ * execute() and isFinished() by {@link AllocationTracker}. The allocations of
+ * the whole loop, including the command scheduler and the dashboard updates,
+ * are reported but not checked, since most of them are in WPILib.
+ */
+public class AllocationCheckTest {
+
+    private static final int WARMUP_LOOPS = 1500;
+    private static final int MEASURED_LOOPS = 1500;
+    private static final double STICK_PERIOD = 4.0;
+    private static final double STICK_AMPLITUDE = 0.6;
+
+    // A top speed of 3 m/s, and a 0.6 m track width.
+    private static final double MAX_SPEED = 3.0;
+    private static final double TRACK_WIDTH = 0.6;
+
+    private SimulationHarness harness;
+
+    @Before
+    public void setUp() {
+        assumeTrue("allocations cannot be counted by this JVM", AllocationTracker.isSupported());
+
+        harness = new SimulationHarness();
+        harness.setMode(TelemetryRecord.MODE_TELEOP);
+    }
+
+    @After
+    public void tearDown() {
+        if (harness != null) {
+            harness.close();
+        }
+    }
+
+    @Test
+    public void teleopDoesNotAllocate() {
+        final double threshold = Double.parseDouble(System.getProperty("allocationThreshold", "0"));
+
+        harness.robotInit();
+
+        final TelemetryRecord record = TelemetryLog.getRecord();
+        final double period = TimedRobot.kDefaultPeriod;
+
+        double leftDistance = 0.0;
+        double rightDistance = 0.0;
+        double heading = 0.0;
+        long measuredBytes = 0;
+        long maxLoopBytes = 0;
+        long wholeLoopBytes = 0;
+
+        for (int loop = 0; loop < WARMUP_LOOPS + MEASURED_LOOPS; loop++) {
+            final double phase = 2.0 * Math.PI * loop * period / STICK_PERIOD;
+
+            harness.setControllers(STICK_AMPLITUDE * Math.sin(phase),
+                    STICK_AMPLITUDE * Math.sin(phase + Math.PI / 3.0), STICK_AMPLITUDE * Math.sin(phase),
+                    STICK_AMPLITUDE * Math.cos(phase));
+
+            // The outputs recorded in the previous loop move the robot.
+            final double leftSpeed = record.getLeftOutput() * MAX_SPEED;
+            final double rightSpeed = record.getRightOutput() * MAX_SPEED;
+
+            leftDistance += leftSpeed * period;
+            rightDistance += rightSpeed * period;
+            harness.setEncoders(leftDistance, rightDistance, leftSpeed, rightSpeed);
+
+            final double turnRate = Math.toDegrees((leftSpeed - rightSpeed) / TRACK_WIDTH);
+
+            heading += turnRate * period;
+            harness.setGyro(heading, turnRate);
+
+            SimHooks.stepTiming(period);
+
+            final long startTotal = AllocationTracker.getTotalBytes();
+            final long startBytes = AllocationTracker.getAllocatedBytes();
+
+            harness.step();
+
+            final long loopBytes = AllocationTracker.getTotalBytes() - startTotal;
+
+            if (loop >= WARMUP_LOOPS) {
+                measuredBytes += loopBytes;
+                maxLoopBytes = Math.max(maxLoopBytes, loopBytes);
+                wholeLoopBytes += AllocationTracker.getAllocatedBytes() - startBytes;
+            }
+        }
+
+        final double bytesPerLoop = (double) measuredBytes / MEASURED_LOOPS;
+
+        for (AllocationTracker.Counter counter : AllocationTracker.getCounters()) {
+            if (counter.getBytesPerRun() > 0.0) {
+                System.out.printf("%-40s %10.1f BYTES/RUN%n", counter.getName(), counter.getBytesPerRun());
+            }
+        }
+
+        System.out.printf("WHOLE LOOP (INCLUDING THE SCHEDULER AND DASHBOARD): %.1f BYTES/LOOP%n",
+                (double) wholeLoopBytes / MEASURED_LOOPS);
+        System.out.printf("SUBSYSTEMS AND COMMANDS: %.1f BYTES/LOOP (MAX %d), THRESHOLD %.1f%n", bytesPerLoop,
+                maxLoopBytes, threshold);
+
+        assertTrue(String.format("the subsystems and commands allocated %.1f bytes per loop, more than %.1f",
+                bytesPerLoop, threshold), bytesPerLoop <= threshold);
+    }
+}
@@ -0,0 +1,76 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.sensors.SimulatedNavX;
+import frc.robot.utilities.AllocationTracker;
+
+/**
+ * Runs the DriveStraight command loop for 10,000 iterations against a stub
+ * drive subsystem, and checks that it does not allocate once it has warmed up.
+ */
+public class DriveStraightAllocationTest {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 10_000;
+
+    private SimulatedNavX gyro;
+    private DriveStraight command;
+
+    @Before
+    public void setUp() {
+        assumeTrue("allocations cannot be counted by this JVM", AllocationTracker.isSupported());
+
+        HAL.initialize(500, 0);
+
+        gyro = new SimulatedNavX(200);
+
+        // Drive far enough that the command never finishes during the test.
+        command = new DriveStraight(new StubDriveSubsystem(gyro)).withSpeed(0.5).forMeters(1.0e9);
+        command.initialize();
+    }
+
+    @After
+    public void tearDown() {
+        if (gyro != null) {
+            gyro.close();
+        }
+    }
+
+    @Test
+    public void loopDoesNotAllocate() {
+        boolean finished = false;
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            command.execute();
+            finished |= command.isFinished();
+        }
+
+        final long startBytes = AllocationTracker.getAllocatedBytes();
+
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            command.execute();
+            finished |= command.isFinished();
+        }
+
+        final long bytes = AllocationTracker.getAllocatedBytes() - startBytes;
+
+        assertFalse(finished);
+        assertEquals(bytes + " bytes allocated in " + MEASURED_ITERATIONS + " iterations", 0,
+                bytes / MEASURED_ITERATIONS);
+    }
+}
@@ -0,0 +1,36 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.interfaces.Gyro;
+import frc.robot.subsystems.DriveSubsystem;
+
+/**
+ * A drive subsystem that reports a slowly changing heading and discards the
+ * drive outputs. The position is read from the (unchanging) odometry. Used by
+ * the DriveStraight allocation test and benchmark.
+ */
+class StubDriveSubsystem extends DriveSubsystem {
+    private double heading;
+    private double output;
+
+    StubDriveSubsystem(Gyro gyro) {
+        super(0, gyro);
+    }
+
+    @Override
+    public double getHeading() {
+        heading += 0.001;
+        return heading;
+    }
+
+    @Override
+    public void arcadeDrive(double xSpeed, double zRotation, boolean squareInputs) {
+        output = xSpeed + zRotation;
+    }
+}
@@ -0,0 +1,132 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.sensors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the sample ring and turn rate of {@link HeadingRing}, and the
+ * unwrapping and resetting of {@link HeadingCapture}, with samples added
+ * directly rather than by a gyro thread.
+ */
+public class HeadingCaptureTest {
+
+    private static final double PERIOD = 1.0 / 200.0;
+
+    private final HeadingSample sample = new HeadingSample();
+
+    @Test
+    public void emptyRingHasNoSample() {
+        final HeadingRing ring = new HeadingRing(4);
+
+        assertFalse(ring.read(sample, 4));
+        assertEquals(0, ring.getCount());
+    }
+
+    @Test
+    public void readsLatestSampleAfterWrapping() {
+        // Rounded up to 8 samples.
+        final HeadingRing ring = new HeadingRing(5);
+
+        for (int i = 0; i < 21; i++) {
+            ring.add(10.0 + i * PERIOD, i * PERIOD, 3.0 * i);
+        }
+
+        assertTrue(ring.read(sample, 4));
+        assertEquals(21, ring.getCount());
+        assertEquals(10.0 + 20 * PERIOD, sample.getTimestamp(), 1e-12);
+        assertEquals(60.0, sample.getHeading(), 0.0);
+    }
+
+    @Test
+    public void fitsTurnRate() {
+        final HeadingRing ring = new HeadingRing(16);
+
+        for (int i = 0; i < 40; i++) {
+            // Alternate the noise, so that it cancels out over an even window.
+            final double noise = (i & 1) == 0 ? 0.05 : -0.05;
+
+            ring.add(i * PERIOD, i * PERIOD, 90.0 * i * PERIOD + noise);
+        }
+
+        assertTrue(ring.read(sample, 8));
+        assertEquals(90.0, sample.getRate(), 5.0);
+
+        // A window larger than the ring uses the whole ring.
+        assertTrue(ring.read(sample, 1000));
+        assertEquals(90.0, sample.getRate(), 1.0);
+
+        // One sample gives no rate.
+        assertTrue(ring.read(sample, 1));
+        assertEquals(0.0, sample.getRate(), 0.0);
+    }
+
+    @Test
+    public void fitsTurnRateOverSensorTime() {
+        final HeadingRing ring = new HeadingRing(8);
+
+        // The samples are received in bursts, but were taken at a steady rate.
+        for (int i = 0; i < 8; i++) {
+            ring.add((i / 4) * 4 * PERIOD, i * PERIOD, -45.0 * i * PERIOD);
+        }
+
+        assertTrue(ring.read(sample, 8));
+        assertEquals(-45.0, sample.getRate(), 1e-9);
+    }
+
+    @Test
+    public void unwrapsYawFromGyroAngle() {
+        final SettableGyro gyro = new SettableGyro();
+        final HeadingCapture capture = new HeadingCapture(gyro);
+
+        gyro.set(350.0, 0.0);
+        assertFalse(capture.read(sample));
+
+        // The yaw wraps from 160 to -170 while the heading keeps increasing.
+        capture.addSample(0.0, 0.0, -10.0);
+        capture.addSample(PERIOD, PERIOD, 160.0);
+        capture.addSample(2 * PERIOD, 2 * PERIOD, -170.0);
+
+        assertTrue(capture.read(sample));
+        assertEquals(3, capture.getSampleCount());
+        assertEquals(350.0 + 170.0 + 30.0, sample.getHeading(), 1e-9);
+    }
+
+    @Test
+    public void reseedsAfterReset() {
+        final SettableGyro gyro = new SettableGyro();
+        final HeadingCapture capture = new HeadingCapture(gyro);
+
+        gyro.set(100.0, 0.0);
+        for (int i = 0; i < 10; i++) {
+            capture.addSample(i * PERIOD, i * PERIOD, 100.0 + 20.0 * i * PERIOD);
+        }
+        assertTrue(capture.read(sample));
+        assertEquals(100.0 + 20.0 * 9 * PERIOD, sample.getHeading(), 1e-9);
+
+        // The gyro is reset, and its yaw jumps to zero.
+        gyro.reset();
+        capture.reset();
+        assertFalse(capture.read(sample));
+
+        capture.addSample(10 * PERIOD, 10 * PERIOD, 0.0);
+        assertTrue(capture.read(sample));
+        assertEquals(0.0, sample.getHeading(), 0.0);
+        // The samples from before the reset are not part of the turn rate.
+        assertEquals(0.0, sample.getRate(), 0.0);
+
+        capture.addSample(11 * PERIOD, 11 * PERIOD, 20.0 * PERIOD);
+        assertTrue(capture.read(sample));
+        assertEquals(20.0 * PERIOD, sample.getHeading(), 1e-9);
+        assertEquals(20.0, sample.getRate(), 1e-6);
+    }
+}
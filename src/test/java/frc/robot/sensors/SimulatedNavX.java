@@ -0,0 +1,100 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.sensors;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.interfaces.Gyro;
+
+/**
+ * A stand-in for the navX for desktop tests and benchmarks. It turns at a set
+ * rate and delivers heading samples on its own thread at a fixed rate, in the
+ * same way as the navX callback.
+ */
+public class SimulatedNavX implements Gyro, IHeadingSource {
+
+    private final double period;
+    private final Notifier notifier;
+
+    private HeadingCapture capture;
+    private double angle;
+    private double rate;
+    private double sensorTime;
+
+    /**
+     * Constructs an instance of this class.
+     *
+     * @param updateRate The rate at which samples are delivered, in Hz.
+     */
+    public SimulatedNavX(int updateRate) {
+        period = 1.0 / updateRate;
+        notifier = new Notifier(this::update);
+        notifier.setName("Simulated navX");
+        notifier.startPeriodic(period);
+    }
+
+    @Override
+    public synchronized void setCapture(HeadingCapture capture) {
+        this.capture = capture;
+    }
+
+    /**
+     * Sets the total accumulated yaw angle.
+     *
+     * @param angle The angle, in degrees.
+     */
+    public synchronized void setAngle(double angle) {
+        this.angle = angle;
+    }
+
+    /**
+     * Sets the rate at which the gyro turns.
+     *
+     * @param rate The rate, in degrees per second.
+     */
+    public synchronized void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public void calibrate() {
+    }
+
+    @Override
+    public synchronized void reset() {
+        angle = 0.0;
+    }
+
+    @Override
+    public synchronized double getAngle() {
+        return angle;
+    }
+
+    @Override
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    @Override
+    public void close() {
+        notifier.close();
+    }
+
+    /**
+     * Advances the angle by one period and delivers a sample, with the yaw wrapped
+     * to -180 to 180 degrees as the navX reports it.
+     */
+    private synchronized void update() {
+        angle += rate * period;
+        sensorTime += period;
+
+        if (capture != null) {
+            capture.addSample(Timer.getFPGATimestamp(), sensorTime, Math.IEEEremainder(angle, 360.0));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.function.IntSupplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.utilities.RobotPreferences.BooleanValue;
+import frc.robot.utilities.RobotPreferences.DoubleValue;
+import frc.robot.utilities.RobotPreferences.IntegerValue;
+import frc.robot.utilities.RobotPreferences.StringValue;
+
+/**
+ * Checks that reading each type of preferences value does not allocate, as
+ * counted by the JVM's per-thread allocation counter.
+ */
+public class RobotPreferencesAllocationTest {
+
+    private static final int WARMUP_CALLS = 200_000;
+    private static final int MEASURED_CALLS = 100_000;
+
+    private StringValue stringValue;
+    private IntegerValue integerValue;
+    private DoubleValue doubleValue;
+    private BooleanValue booleanValue;
+
+    @Before
+    public void setUp() {
+        assumeTrue("allocations cannot be counted by this JVM", AllocationTracker.isSupported());
+
+        HAL.initialize(500, 0);
+
+        stringValue = new StringValue("AllocationTest/String", "default");
+        integerValue = new IntegerValue("AllocationTest/Integer", 42);
+        doubleValue = new DoubleValue("AllocationTest/Double", 0.5);
+        booleanValue = new BooleanValue("AllocationTest/Boolean", true);
+    }
+
+    @Test
+    public void stringValueDoesNotAllocate() {
+        assertEquals(0.0, bytesPerCall(() -> stringValue.getValue().length()), 0.0);
+    }
+
+    @Test
+    public void integerValueDoesNotAllocate() {
+        assertEquals(0.0, bytesPerCall(() -> integerValue.getValue()), 0.0);
+    }
+
+    @Test
+    public void doubleValueDoesNotAllocate() {
+        assertEquals(0.0, bytesPerCall(() -> (int) doubleValue.getValue()), 0.0);
+    }
+
+    @Test
+    public void booleanValueDoesNotAllocate() {
+        assertEquals(0.0, bytesPerCall(() -> booleanValue.getValue() ? 1 : 0), 0.0);
+    }
+
+    /**
+     * Returns the bytes allocated per call to a getter, once it has warmed up.
+     * The count is rounded down to whole bytes per call, so that one-off
+     * allocations by the JVM during the measurement are not counted.
+     */
+    private static double bytesPerCall(IntSupplier getter) {
+        int sum = 0;
+
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            sum += getter.getAsInt();
+        }
+
+        final long startBytes = AllocationTracker.getAllocatedBytes();
+
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            sum += getter.getAsInt();
+        }
+
+        final long bytes = AllocationTracker.getAllocatedBytes() - startBytes;
+
+        // Keep the calls from being optimized away.
+        if (sum == Integer.MIN_VALUE) {
+            System.out.println(sum);
+        }
+
+        return Math.floor((double) bytes / MEASURED_CALLS);
+    }
+}
@@ -0,0 +1,87 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.utilities.RobotPreferences.IntegerValue;
+
+/**
+ * Initializes the preferences when the snapshot and NetworkTables disagree,
+ * e.g. after the preferences were edited while the robot was off, and checks
+ * that the value in NetworkTables wins.
+ */
+public class RobotPreferencesReconcileTest {
+
+    private static final double LISTENER_TIMEOUT = 2.0;
+
+    @Before
+    public void setUp() {
+        HAL.initialize(500, 0);
+    }
+
+    @Test
+    public void usesNetworkTablesValueOverSnapshot() {
+        RobotPreferences.WRITE_DEFAULT.setValue(false);
+
+        final IntegerValue value = createStaleValue("ReconcileTest/Kept", 1, 5, 3);
+
+        RobotPreferences.init(Stream.of(RobotPreferences.WRITE_DEFAULT, value));
+
+        assertEquals(5, value.getValue());
+        assertFalse(value.isFromSnapshot());
+        assertEquals(5, RobotPreferences.getSnapshot().getInt(value.slot));
+    }
+
+    @Test
+    public void writeDefaultResetsValueThatOnlyLooksDefaultInSnapshot() {
+        RobotPreferences.WRITE_DEFAULT.setValue(true);
+
+        final IntegerValue value = createStaleValue("ReconcileTest/Reset", 1, 5, 1);
+
+        assertTrue(value.isDefault());
+
+        RobotPreferences.init(Stream.of(RobotPreferences.WRITE_DEFAULT, value));
+
+        assertEquals(1, value.getValue());
+        assertEquals(1.0, NetworkTableInstance.getDefault().getTable("Preferences").getEntry(value.getKey())
+                .getDouble(0.0), 0.0);
+        assertFalse(RobotPreferences.WRITE_DEFAULT.getValue());
+    }
+
+    /**
+     * Returns a value read from a snapshot that is out of date: NetworkTables
+     * holds one value and the snapshot another.
+     */
+    private static IntegerValue createStaleValue(String key, int defaultValue, int tableValue, int snapshotValue) {
+        final IntegerValue original = new IntegerValue(key, defaultValue);
+
+        original.setValue(tableValue);
+
+        // Let the listener copy the new value to the snapshot before changing it.
+        NetworkTableInstance.getDefault().waitForEntryListenerQueue(LISTENER_TIMEOUT);
+        RobotPreferences.getSnapshot().putInt(original.slot, snapshotValue);
+
+        // A value constructed now, e.g. at the next boot, reads the snapshot.
+        final IntegerValue value = new IntegerValue(key, defaultValue);
+
+        assertTrue(value.isFromSnapshot());
+        assertEquals(snapshotValue, value.getValue());
+
+        return value;
+    }
+}
@@ -0,0 +1,161 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import frc.robot.Constants;
+
+/**
+ * Feeds {@link VelocityEstimator} synthetic encoder traces at the odometry
+ * rate, with pulse quantization, timestamp jitter and glitches, and checks how
+ * close the estimates stay to the true speed.
+ */
+public class VelocityEstimatorTest {
+
+    private static final double PERIOD = 1.0 / 200.0;
+    private static final double JITTER = 0.0003;
+    private static final int SAMPLES = 4000;
+
+    @Test
+    public void estimatesConstantSpeed() {
+        for (VelocityEstimator.Filter filter : VelocityEstimator.Filter.values()) {
+            final VelocityEstimator estimator = new VelocityEstimator(filter, 8);
+
+            for (int i = 0; i < 20; i++) {
+                estimator.add(i * PERIOD, 2.0 * i * PERIOD);
+            }
+
+            assertEquals(filter.name(), 2.0, estimator.getVelocity(), 1e-9);
+        }
+    }
+
+    @Test
+    public void leastSquaresRejectsNoise() {
+        final double raw = rmsError(null, 0.0);
+        final double filtered = rmsError(new VelocityEstimator(VelocityEstimator.Filter.LEAST_SQUARES, 8), 0.0);
+
+        assertTrue("raw " + raw + ", filtered " + filtered, filtered < raw / 4.0);
+    }
+
+    @Test
+    public void medianRejectsGlitches() {
+        final double raw = rmsError(null, 0.01);
+        final double filtered = rmsError(new VelocityEstimator(VelocityEstimator.Filter.MEDIAN, 8), 0.01);
+
+        assertTrue("raw " + raw + ", filtered " + filtered, filtered < raw / 4.0);
+    }
+
+    @Test
+    public void medianIgnoresSingleBadSample() {
+        final VelocityEstimator estimator = new VelocityEstimator(VelocityEstimator.Filter.MEDIAN, 8);
+
+        for (int i = 0; i < 20; i++) {
+            // One sample reads 20 pulses too far.
+            final double glitch = i == 15 ? 20 * Constants.kEncoderDistancePerPulse : 0.0;
+
+            estimator.add(i * PERIOD, 1.5 * i * PERIOD + glitch);
+            assertEquals(1.5, estimator.getVelocity(), i < 2 ? 1.5 : 1e-9);
+        }
+    }
+
+    @Test
+    public void ignoresSamplesThatAreNotNewer() {
+        final VelocityEstimator estimator = new VelocityEstimator(VelocityEstimator.Filter.LEAST_SQUARES, 4);
+
+        estimator.add(1.0, 0.0);
+        estimator.add(2.0, 1.0);
+        estimator.add(2.0, 5.0);
+        estimator.add(1.5, 5.0);
+
+        assertEquals(1.0, estimator.getVelocity(), 1e-9);
+    }
+
+    @Test
+    public void clearRestartsTheEstimate() {
+        final VelocityEstimator estimator = new VelocityEstimator(VelocityEstimator.Filter.LEAST_SQUARES, 4);
+
+        for (int i = 0; i < 10; i++) {
+            estimator.add(i * PERIOD, 3.0 * i * PERIOD);
+        }
+        estimator.clear();
+        assertEquals(0.0, estimator.getVelocity(), 0.0);
+
+        // The encoder was reset, so the distance starts again from zero.
+        estimator.add(10 * PERIOD, 0.0);
+        assertEquals(0.0, estimator.getVelocity(), 0.0);
+        estimator.add(11 * PERIOD, -1.0 * PERIOD);
+        assertEquals(-1.0, estimator.getVelocity(), 1e-9);
+    }
+
+    @Test
+    public void staysAccurateOverLongRuns() {
+        final VelocityEstimator estimator = new VelocityEstimator(VelocityEstimator.Filter.LEAST_SQUARES, 8);
+        final double startTime = 1.0e5;
+
+        // Enough samples to rebase the sums many times, far from time zero.
+        for (int i = 0; i < 100000; i++) {
+            estimator.add(startTime + i * PERIOD, 1000.0 + 2.5 * i * PERIOD);
+        }
+
+        assertEquals(2.5, estimator.getVelocity(), 1e-6);
+    }
+
+    /**
+     * Returns the RMS error of the estimates against the true speed on a trace at
+     * 1-3 m/s, or of the difference between successive samples if the estimator
+     * is null.
+     *
+     * @param glitchProbability The probability that a sample reads 20 pulses too
+     *                          far.
+     */
+    private static double rmsError(VelocityEstimator estimator, double glitchProbability) {
+        final Random random = new Random(20);
+        final double pulse = Constants.kEncoderDistancePerPulse;
+        double distance = 0.0;
+        double lastTime = 0.0;
+        double lastReading = 0.0;
+        double sumSquares = 0.0;
+        int count = 0;
+
+        for (int i = 0; i < SAMPLES; i++) {
+            final double time = i * PERIOD;
+            final double speed = 2.0 + Math.sin(2.0 * Math.PI * time / 4.0);
+
+            distance += speed * PERIOD;
+
+            final double readTime = time + (random.nextDouble() * 2.0 - 1.0) * JITTER;
+            final double glitch = random.nextDouble() < glitchProbability ? 20 * pulse : 0.0;
+            final double reading = Math.floor(distance / pulse) * pulse + glitch;
+            final double estimate;
+
+            if (estimator != null) {
+                estimator.add(readTime, reading);
+                estimate = estimator.getVelocity();
+            } else {
+                estimate = i > 0 ? (reading - lastReading) / (readTime - lastTime) : 0.0;
+            }
+
+            lastTime = readTime;
+            lastReading = reading;
+
+            // Skip the samples that fill the window.
+            if (i >= 20) {
+                sumSquares += (estimate - speed) * (estimate - speed);
+                count++;
+            }
+        }
+
+        return Math.sqrt(sumSquares / count);
+    }
+}
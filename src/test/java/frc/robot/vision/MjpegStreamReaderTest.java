@@ -0,0 +1,215 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.vision;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Reads a recorded MJPEG stream served by a local HTTP server, with
+ * {@link MjpegStreamReader} and through {@link MjpegIngest}.
+ */
+public class MjpegStreamReaderTest {
+
+    private static final int FRAME_CAPACITY = 1024;
+    private static final int TIMEOUT_MS = 2000;
+
+    /**
+     * Serves the same response to every connection on the loopback interface,
+     * then closes the connection.
+     */
+    private static class StreamServer implements AutoCloseable {
+        private final ServerSocket socket;
+        private final Thread thread;
+
+        StreamServer(byte[] response) throws IOException {
+            socket = new ServerSocket(0, 4, InetAddress.getLoopbackAddress());
+            thread = new Thread(() -> serve(response), "MJPEG Test Server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        URI getUri() {
+            return URI.create("http://127.0.0.1:" + socket.getLocalPort() + "/stream.mjpg");
+        }
+
+        private void serve(byte[] response) {
+            while (true) {
+                try (Socket client = socket.accept()) {
+                    final InputStream input = client.getInputStream();
+                    final OutputStream output = client.getOutputStream();
+
+                    // Read the request up to the blank line that ends it.
+                    int matched = 0;
+
+                    while (matched < 4) {
+                        final int b = input.read();
+
+                        if (b < 0) {
+                            break;
+                        }
+                        matched = b == "\r\n\r\n".charAt(matched) ? matched + 1 : (b == '\r' ? 1 : 0);
+                    }
+
+                    output.write(response);
+                    output.flush();
+                } catch (SocketException e) {
+                    // Closed by the test.
+                    return;
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private final byte[] first = jpeg(100, 1);
+    private final byte[] second = jpeg(200, 2);
+    private final byte[] oversized = jpeg(FRAME_CAPACITY + 100, 3);
+    private final byte[] last = jpeg(50, 4);
+
+    private StreamServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        write(stream, "HTTP/1.0 200 OK\r\n"
+                + "Content-Type: multipart/x-mixed-replace;boundary=frame\r\n\r\n");
+        part(stream, first, true);
+        part(stream, second, false);
+        part(stream, oversized, true);
+        part(stream, oversized, false);
+        part(stream, last, true);
+
+        server = new StreamServer(stream.toByteArray());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void readsFramesAndSkipsOversizedOnes() throws IOException {
+        final ByteBuffer frame = ByteBuffer.allocateDirect(FRAME_CAPACITY);
+
+        try (MjpegStreamReader reader = MjpegStreamReader.open(server.getUri(), TIMEOUT_MS)) {
+            assertTrue(reader.readFrame(frame));
+            assertArrayEquals(first, toArray(frame));
+
+            // Without a Content-Length, the frame ends at the JPEG end-of-image marker.
+            assertTrue(reader.readFrame(frame));
+            assertArrayEquals(second, toArray(frame));
+
+            // Both oversized frames, with and without a Content-Length, are skipped.
+            assertTrue(reader.readFrame(frame));
+            assertArrayEquals(last, toArray(frame));
+
+            assertFalse(reader.readFrame(frame));
+        }
+    }
+
+    @Test
+    public void passesFramesToTheDetector() throws Exception {
+        final AtomicLong validFrames = new AtomicLong();
+        final AtomicLong invalidFrames = new AtomicLong();
+        final ITargetDetector detector = frame -> {
+            final ByteBuffer data = frame.getData();
+            final int length = data.remaining();
+
+            if (length >= 4 && data.get(data.position()) == (byte) 0xFF
+                    && data.get(data.position() + 1) == (byte) 0xD8
+                    && data.get(data.limit() - 2) == (byte) 0xFF && data.get(data.limit() - 1) == (byte) 0xD9) {
+                validFrames.incrementAndGet();
+            } else {
+                invalidFrames.incrementAndGet();
+            }
+        };
+
+        try (MjpegIngest ingest = new MjpegIngest(server.getUri(), detector, 100.0, FRAME_CAPACITY, () -> 0.0)) {
+            ingest.start();
+
+            final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+
+            while (ingest.getFramesReceived() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Thread.sleep(50);
+
+            assertEquals(3, ingest.getFramesReceived());
+            assertEquals(ingest.getFramesReceived(), ingest.getFramesProcessed() + ingest.getFramesDropped());
+            assertTrue(validFrames.get() >= 1);
+            assertEquals(0, invalidFrames.get());
+        }
+    }
+
+    /**
+     * Returns a fake JPEG of the specified size: start-of-image, filler that
+     * never contains the end-of-image marker, and end-of-image.
+     */
+    private static byte[] jpeg(int size, int fill) {
+        final byte[] data = new byte[size];
+
+        data[0] = (byte) 0xFF;
+        data[1] = (byte) 0xD8;
+        for (int i = 2; i < size - 2; i++) {
+            data[i] = (byte) (fill + i % 100);
+        }
+        data[size - 2] = (byte) 0xFF;
+        data[size - 1] = (byte) 0xD9;
+
+        return data;
+    }
+
+    private static void part(ByteArrayOutputStream stream, byte[] image, boolean withLength) throws IOException {
+        write(stream, "--frame\r\nContent-Type: image/jpeg\r\n");
+        if (withLength) {
+            write(stream, "Content-Length: " + image.length + "\r\n");
+        }
+        write(stream, "\r\n");
+        stream.write(image);
+        write(stream, "\r\n");
+    }
+
+    private static void write(ByteArrayOutputStream stream, String text) throws IOException {
+        stream.write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] toArray(ByteBuffer frame) {
+        final byte[] data = new byte[frame.remaining()];
+
+        frame.duplicate().get(data);
+
+        return data;
+    }
+}
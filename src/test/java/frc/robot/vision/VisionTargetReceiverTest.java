@@ -0,0 +1,169 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package frc.robot.vision;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.function.LongSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Sends packets to a {@link VisionTargetReceiver} over the loopback interface
+ * with a {@link VisionTargetSender}, and checks what the receiver makes of
+ * them.
+ */
+public class VisionTargetReceiverTest {
+
+    private static final long TIMEOUT_MILLIS = 2000;
+
+    private volatile double time = 100.0;
+    private VisionTargetReceiver receiver;
+    private VisionTargetSender sender;
+    private final VisionTargets targets = new VisionTargets();
+
+    @Before
+    public void setUp() throws IOException {
+        receiver = new VisionTargetReceiver(0, () -> time);
+        receiver.start();
+        sender = new VisionTargetSender("localhost", receiver.getPort());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    public void decodesTargets() throws Exception {
+        targets.setFrame(7, 123456789L);
+        targets.addTarget(12.5, -3.25, 4.0, 0.125);
+        targets.addTarget(-20.0, 1.5, 6.5, 0.0625);
+        sender.send(targets);
+
+        waitFor(() -> receiver.getPacketsReceived(), 1);
+        assertTrue(receiver.update());
+
+        final VisionTargets received = receiver.getTargets();
+
+        assertEquals(7, received.getSequence());
+        assertEquals(123456789L, received.getCaptureTime());
+        assertEquals(time, received.getReceiveTimestamp(), 0.0);
+        assertEquals(2, received.getCount());
+        assertEquals(12.5, received.getYaw(0), 0.0);
+        assertEquals(-3.25, received.getPitch(0), 0.0);
+        assertEquals(4.0, received.getDistance(0), 0.0);
+        assertEquals(0.125, received.getArea(0), 0.0);
+        assertEquals(-20.0, received.getYaw(1), 0.0);
+        assertEquals(0.0625, received.getArea(1), 0.0);
+
+        // Nothing new until the next packet arrives.
+        assertTrue(!receiver.update());
+    }
+
+    @Test
+    public void countsDroppedPackets() throws Exception {
+        send(1, 2, 5, 6, 10);
+
+        waitFor(() -> receiver.getPacketsReceived(), 5);
+        assertEquals(5, receiver.getPacketsDropped());
+        assertEquals(0, receiver.getPacketsOutOfOrder());
+    }
+
+    @Test
+    public void discardsOutOfOrderPackets() throws Exception {
+        send(1, 3, 2, 4, 3);
+
+        waitFor(() -> receiver.getPacketsReceived() + receiver.getPacketsOutOfOrder(), 5);
+        assertEquals(3, receiver.getPacketsReceived());
+        assertEquals(2, receiver.getPacketsOutOfOrder());
+        assertEquals(1, receiver.getPacketsDropped());
+        assertTrue(receiver.update());
+        assertEquals(4, receiver.getTargets().getSequence());
+    }
+
+    @Test
+    public void followsSequenceWrap() throws Exception {
+        send(Integer.MAX_VALUE - 1, Integer.MAX_VALUE, Integer.MIN_VALUE);
+
+        waitFor(() -> receiver.getPacketsReceived(), 3);
+        assertEquals(0, receiver.getPacketsOutOfOrder());
+        assertEquals(0, receiver.getPacketsDropped());
+    }
+
+    @Test
+    public void resynchronizesAfterSenderRestart() throws Exception {
+        send(5000, 5001);
+        waitFor(() -> receiver.getPacketsReceived(), 2);
+
+        // The coprocessor restarts and counts from 1 again.
+        send(1, 2, 3);
+
+        waitFor(() -> receiver.getPacketsReceived(), 5);
+        assertEquals(1, receiver.getSenderResets());
+        assertEquals(0, receiver.getPacketsOutOfOrder());
+        assertTrue(receiver.update());
+        assertEquals(3, receiver.getTargets().getSequence());
+    }
+
+    @Test
+    public void resynchronizesAfterSilence() throws Exception {
+        send(50, 51);
+        waitFor(() -> receiver.getPacketsReceived(), 2);
+
+        // A restart that lands close to the old sequence is only recognized by
+        // the time since the last packet.
+        time += 5.0;
+        send(40);
+
+        waitFor(() -> receiver.getPacketsReceived(), 3);
+        assertEquals(1, receiver.getSenderResets());
+        assertEquals(0, receiver.getPacketsOutOfOrder());
+    }
+
+    @Test
+    public void countsMalformedPackets() throws Exception {
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.connect(new InetSocketAddress("localhost", receiver.getPort()));
+            channel.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+        }
+        send(1);
+
+        waitFor(() -> receiver.getPacketsReceived(), 1);
+        assertEquals(1, receiver.getPacketsMalformed());
+    }
+
+    private void send(int... sequences) throws IOException {
+        for (int sequence : sequences) {
+            targets.setFrame(sequence, sequence * 1000L);
+            targets.addTarget(sequence, 0.0, 1.0, 0.1);
+            sender.send(targets);
+        }
+    }
+
+    /**
+     * Waits for the receiver thread to reach a count.
+     */
+    private static void waitFor(LongSupplier count, long expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while (count.getAsLong() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(expected, count.getAsLong());
+    }
+}